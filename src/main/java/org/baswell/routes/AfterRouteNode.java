@@ -23,6 +23,11 @@ class AfterRouteNode implements Comparable<AfterRouteNode>
 {
   final Method method;
 
+  /*
+   * Calls the method through the generated route invoker. Null if the route class doesn't have one.
+   */
+  final DirectMethod directMethod;
+
   final List<MethodParameter> parameters;
 
   final Set<String> onlyTags;
@@ -37,9 +42,10 @@ class AfterRouteNode implements Comparable<AfterRouteNode>
 
   final int classHierarchyOrder;
 
-  AfterRouteNode(Method method, List<MethodParameter> parameters, Set<String> onlyTags, Set<String> exceptTags, boolean onlyOnSuccess, boolean onlyOnError, Integer explicitOrder, int classHierarchyOrder)
+  AfterRouteNode(Method method, DirectMethod directMethod, List<MethodParameter> parameters, Set<String> onlyTags, Set<String> exceptTags, boolean onlyOnSuccess, boolean onlyOnError, Integer explicitOrder, int classHierarchyOrder)
   {
     this.method = method;
+    this.directMethod = directMethod;
     this.parameters = parameters;
     this.onlyTags = onlyTags;
     this.exceptTags = exceptTags;
@@ -15,14 +15,17 @@
  */
 package org.baswell.routes;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class AvailableLibraries
 {
   private final RoutesConfiguration configuration;
 
-  Map<String, Boolean> classesLoad = new HashMap<String, Boolean>();
+  /*
+   * Shared by the route classes compiled in parallel.
+   */
+  Map<String, Boolean> classesLoad = new ConcurrentHashMap<String, Boolean>();
 
   AvailableLibraries(RoutesConfiguration configuration)
   {
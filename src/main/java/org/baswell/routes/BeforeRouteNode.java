@@ -23,6 +23,11 @@ class BeforeRouteNode implements Comparable<BeforeRouteNode>
 {
   final Method method;
 
+  /*
+   * Calls the method through the generated route invoker. Null if the route class doesn't have one.
+   */
+  final DirectMethod directMethod;
+
   final List<MethodParameter> parameters;
   
   final boolean returnsBoolean;
@@ -35,9 +40,10 @@ class BeforeRouteNode implements Comparable<BeforeRouteNode>
 
   final int classHierarchyOrder;
 
-  BeforeRouteNode(Method method, List<MethodParameter> parameters, boolean returnsBoolean, Set<String> onlyTags, Set<String> exceptTags, Integer explicitOrder, int classHierarchyOrder)
+  BeforeRouteNode(Method method, DirectMethod directMethod, List<MethodParameter> parameters, boolean returnsBoolean, Set<String> onlyTags, Set<String> exceptTags, Integer explicitOrder, int classHierarchyOrder)
   {
     this.method = method;
+    this.directMethod = directMethod;
     this.parameters = parameters;
     this.returnsBoolean = returnsBoolean;
     this.onlyTags = onlyTags;
@@ -15,10 +15,8 @@
  */
 package org.baswell.routes;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 
 import org.baswell.routes.CriterionForPathSegment.RequestPathSegmentCrierionType;
@@ -35,11 +33,25 @@ class Criteria implements Comparable<Criteria>
   
   final RoutesConfiguration routesConfiguration;
 
+  final EnumSet<HttpMethod> respondsToMethods;
+
+  /*
+   * Empty if this route responds to all media types.
+   */
+  final EnumSet<MediaType> respondsToMedia;
+
   final boolean allCriteriaFixed;
 
   final boolean hasPattern;
   
   final boolean hasMultiPathCriterion;
+
+  /*
+   * Where the groups captured by each PATTERN path criterion (by criterion index) start in MatchedRoute.pathGroups.
+   */
+  final int[] pathGroupOffsets;
+
+  final int numberPathGroups;
   
   Criteria(List<CriterionForPathSegment> pathCriteria, List<CriterionForParameter> parameterCriteria, RouteConfiguration routeConfiguration, RoutesConfiguration routesConfiguration)
   {
@@ -48,12 +60,26 @@ class Criteria implements Comparable<Criteria>
     this.routeConfiguration = routeConfiguration;
     this.routesConfiguration = routesConfiguration;
 
+    respondsToMethods = EnumSet.noneOf(HttpMethod.class);
+    respondsToMedia = EnumSet.noneOf(MediaType.class);
+    if (routeConfiguration != null)
+    {
+      respondsToMethods.addAll(routeConfiguration.respondsToMethods);
+      respondsToMedia.addAll(routeConfiguration.respondsToMedia);
+    }
+
     boolean hasPattern = false;
     boolean hasMultiPathCriterion = false;
+    int numberPathGroups = 0;
+    pathGroupOffsets = new int[pathCriteria == null ? 0 : pathCriteria.size()];
     if (pathCriteria != null)
     {
-      for (CriterionForPathSegment pathCriterion : pathCriteria)
+      for (int i = 0; i < pathCriteria.size(); i++)
       {
+        CriterionForPathSegment pathCriterion = pathCriteria.get(i);
+        pathGroupOffsets[i] = numberPathGroups;
+        numberPathGroups += pathCriterion.numberPatternGroups;
+
         if (pathCriterion.type == RequestPathSegmentCrierionType.PATTERN)
         {
           hasPattern = true;
@@ -64,6 +90,7 @@ class Criteria implements Comparable<Criteria>
         }
       }
     }
+    this.numberPathGroups = numberPathGroups;
     this.hasPattern = hasPattern;
     this.hasMultiPathCriterion = hasMultiPathCriterion;
     this.allCriteriaFixed = !this.hasPattern && !this.hasMultiPathCriterion;
@@ -71,37 +98,37 @@ class Criteria implements Comparable<Criteria>
 
   boolean matches(HttpMethod httpMethod, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
   {
-    return matches(httpMethod, requestedMediaType, path, parameters, new ArrayList<Matcher>(), new HashMap<String, Matcher>());
+    return matches(httpMethod, requestedMediaType, path, parameters, MatchContext.get());
   }
 
-  boolean matches(HttpMethod httpMethod, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, List<Matcher> pathMatchers, Map<String, Matcher> parameterMatchers)
+  /**
+   * On a match the path segments and groups captured are left in the given context.
+   */
+  boolean matches(HttpMethod httpMethod, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, MatchContext context)
   {
-    if (!routeConfiguration.respondsToMethods.contains(httpMethod))
-    {
-      return false;
-    }
-    else if (!routeConfiguration.respondsToMedia.isEmpty() && !routeConfiguration.respondsToMedia.contains(requestedMediaType.mediaType))
+    if (!respondsToMethods.contains(httpMethod))
     {
       return false;
     }
-    else if (!hasMultiPathCriterion && (path.size() != pathCriteria.size()))
+    else if (!respondsToMedia.isEmpty() && !respondsToMedia.contains(requestedMediaType.mediaType))
     {
       return false;
     }
-    else if (!matchSegments(0, path, 0, pathCriteria, routesConfiguration, pathMatchers))
+    else if (!matchesPath(path, context))
     {
       return false;
     }
    
     if (parameterCriteria != null)
     {
+      boolean caseInsensitive = routesConfiguration.caseInsensitive;
       for (CriterionForParameter parameterCriterion : parameterCriteria)
       {
-        List<String> parameterValues = parameters.getValues(parameterCriterion.name);
+        List<String> parameterValues = parameters.getValuesView(parameterCriterion.name);
 
         if (parameterValues.isEmpty() && routeConfiguration.defaultParameters.containsKey(parameterCriterion.name))
         {
-          parameterValues.addAll(routeConfiguration.defaultParameters.get(parameterCriterion.name));
+          parameterValues = routeConfiguration.defaultParameters.get(parameterCriterion.name);
         }
 
         if (parameterValues.isEmpty() && parameterCriterion.presenceRequired)
@@ -111,19 +138,21 @@ class Criteria implements Comparable<Criteria>
 
         if (!parameterValues.isEmpty())
         {
-          if (routesConfiguration.caseInsensitive)
-          {
-            for (int i = 0; i < parameterValues.size(); i++)
-            {
-              parameterValues.set(i, parameterValues.get(i).toLowerCase());
-            }
-          }
-
           switch (parameterCriterion.type)
           {
             case FIXED:
-              String value = routesConfiguration.caseInsensitive ? parameterCriterion.value.toLowerCase() : parameterCriterion.value;
-              if (!parameterValues.contains(value))
+              String value = caseInsensitive ? parameterCriterion.value.toLowerCase() : parameterCriterion.value;
+              boolean valueFound = false;
+              for (int i = 0; i < parameterValues.size(); i++)
+              {
+                String parameterValue = parameterValues.get(i);
+                if (value.equals(caseInsensitive ? parameterValue.toLowerCase() : parameterValue))
+                {
+                  valueFound = true;
+                  break;
+                }
+              }
+              if (!valueFound)
               {
                 return false;
               }
@@ -131,12 +160,11 @@ class Criteria implements Comparable<Criteria>
 
             case PATTERN:
               boolean matchFound = false;
-              for (String parameterValue : parameterValues)
+              for (int i = 0; i < parameterValues.size(); i++)
               {
-                Matcher matcher = parameterCriterion.pattern.matcher(parameterValue);
-                if (matcher.matches())
+                String parameterValue = caseInsensitive ? parameterValues.get(i).toLowerCase() : parameterValues.get(i);
+                if ((parameterCriterion.scanner == null) ? context.matcher(parameterCriterion.pattern, parameterValue).matches() : parameterCriterion.scanner.scan(parameterValue, null, null, 0))
                 {
-                  parameterMatchers.put(parameterCriterion.name, matcher);
                   matchFound = true;
                   break;
                 }
@@ -200,82 +228,104 @@ class Criteria implements Comparable<Criteria>
     }
   }
 
-  static boolean matchSegments(int pathIndex, RequestPath path, int criteriaIndex, List<CriterionForPathSegment> criteria, RoutesConfiguration config, List<Matcher> matchers)
+  /**
+   * @return True if the path criteria match the given path (regardless of the HTTP method, media type and parameters).
+   */
+  boolean matchesPath(RequestPath path, MatchContext context)
   {
-    if ((pathIndex >= path.size()) && (criteriaIndex >= criteria.size()))
-    {
-      return true;
-    }
-    else if ((pathIndex >= path.size()) && (criteriaIndex < criteria.size()))
+    return (hasMultiPathCriterion || (path.size() == pathCriteria.size())) && matchSegments(path, context);
+  }
+
+  /**
+   * Matches the request path against the path criteria. A MULTI (**) criterion matches zero or more segments. Every other
+   * criterion matches exactly one segment so when a criterion fails to match only the most recent MULTI criterion needs to
+   * take another segment (earlier MULTI criteria can never do better by taking more). This bounds the work to
+   * path size * criteria size without recursion.
+   *
+   * On a match the path index and captured groups of each criterion are left in the given context.
+   */
+  boolean matchSegments(RequestPath path, MatchContext context)
+  {
+    context.reset(this);
+    int[] segmentIndexes = context.segmentIndexes;
+    List<CriterionForPathSegment> criteria = pathCriteria;
+
+    int pathSize = path.size();
+    int criteriaSize = criteria.size();
+    int pathIndex = 0;
+    int criteriaIndex = 0;
+    int multiCriteriaIndex = -1;
+    int multiPathIndex = -1;
+
+    while (pathIndex < pathSize)
     {
-      for (int i = criteriaIndex; i < criteria.size(); i++)
+      if (criteriaIndex < criteriaSize)
       {
-        if (criteria.get(i).type != RequestPathSegmentCrierionType.MULTI)
+        CriterionForPathSegment criterion = criteria.get(criteriaIndex);
+        if (criterion.type == RequestPathSegmentCrierionType.MULTI)
         {
-          return false;
+          segmentIndexes[criteriaIndex] = pathIndex;
+          if (criteriaIndex == (criteriaSize - 1))
+          {
+            return true;
+          }
+          multiCriteriaIndex = criteriaIndex++;
+          multiPathIndex = pathIndex;
+          continue;
+        }
+        else if ((criterion.type == RequestPathSegmentCrierionType.FIXED) ? path.segmentEquals(pathIndex, criterion.value, routesConfiguration.caseInsensitive)
+                                                                          : matchSegment(path.get(pathIndex), criterion, criteriaIndex, context))
+        {
+          segmentIndexes[criteriaIndex++] = pathIndex++;
+          continue;
         }
       }
-      return true;
+
+      if (multiCriteriaIndex == -1)
+      {
+        return false;
+      }
+      else
+      {
+        criteriaIndex = multiCriteriaIndex + 1;
+        pathIndex = ++multiPathIndex;
+      }
     }
-    else if ((criteriaIndex >= criteria.size()))
+
+    while ((criteriaIndex < criteriaSize) && (criteria.get(criteriaIndex).type == RequestPathSegmentCrierionType.MULTI))
     {
-      return false;
+      segmentIndexes[criteriaIndex++] = pathSize;
+    }
+    return criteriaIndex == criteriaSize;
+  }
+
+  boolean matchSegment(String segment, CriterionForPathSegment criterion, int criteriaIndex, MatchContext context)
+  {
+    if (criterion.type == RequestPathSegmentCrierionType.FIXED)
+    {
+      return routesConfiguration.caseInsensitive ? segment.equalsIgnoreCase(criterion.value) : segment.equals(criterion.value);
+    }
+    else if (criterion.scanner != null)
+    {
+      return criterion.scanner.scan(segment, context.scannedValues, context.scanned, criteriaIndex);
     }
     else
     {
-      String segment = path.get(pathIndex);
-      CriterionForPathSegment criterion = criteria.get(criteriaIndex);
-      
-      switch (criterion.type)
+      Matcher matcher = context.matcher(criterion.pattern, segment);
+      if (matcher.matches())
       {
-        case FIXED:
-          if (config.caseInsensitive && !segment.equalsIgnoreCase(criterion.value))
-          {
-            return false;
-          }
-          else if (!config.caseInsensitive && !segment.equals(criterion.value))
-          {
-            return false;
-          }
-          else
-          {
-            matchers.add(null);
-            return matchSegments(pathIndex + 1, path, criteriaIndex + 1, criteria, config, matchers);
-          }
-  
-        case PATTERN:
-          Matcher matcher = criterion.pattern.matcher(segment);
-          if (!matcher.matches())
-          {
-            return false;
-          }
-          else
-          {
-            matchers.add(matcher);
-            return matchSegments(pathIndex + 1, path, criteriaIndex + 1, criteria, config, matchers);
-          }
-          
-        case MULTI:
-        default:
-          if (criteriaIndex == criteria.size() - 1)
-          {
-            return true;
-          }
-          else
-          {
-            int nextCriteriaIndex = criteriaIndex + 1;
-            for (int nextPathIndex = pathIndex; nextPathIndex < path.size(); nextPathIndex++)
-            {
-              List<Matcher> subMatchers = new ArrayList<Matcher>();
-              subMatchers.add(null);
-              if (matchSegments(nextPathIndex, path, nextCriteriaIndex, criteria, config, subMatchers))
-              {
-                matchers.addAll(subMatchers);
-                return true;
-              }
-            }
-            return false;
-          }
+        int[] groupBounds = context.groupBounds;
+        int bound = pathGroupOffsets[criteriaIndex] * 2;
+        for (int group = 1; group <= criterion.numberPatternGroups; group++)
+        {
+          groupBounds[bound++] = matcher.start(group);
+          groupBounds[bound++] = matcher.end(group);
+        }
+        return true;
+      }
+      else
+      {
+        return false;
       }
     }
   }
@@ -55,7 +55,6 @@ class CriteriaBuilder
       }
       else if (pathTerminal instanceof ParsedDoubleWildcardPathTerminal)
       {
-        ++urlParameterIndex;
         pathCriteria.add(new CriterionForPathSegment(i, "**", RequestPathSegmentCrierionType.MULTI, null));
       }
       else if (pathTerminal instanceof ParsedMethodParameterPathTerminal)
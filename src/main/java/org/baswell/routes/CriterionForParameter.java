@@ -36,6 +36,11 @@ class CriterionForParameter
   final Pattern pattern;
 
   final int numberPatternGroups;
+
+  /*
+   * Used in place of the pattern if the pattern is one of the typed {} patterns.
+   */
+  final TypedValueScanner scanner;
   
   CriterionForParameter(String name, String value, RequestParameterType type, boolean presenceRequired, Pattern pattern)
   {
@@ -50,6 +55,7 @@ class CriterionForParameter
     this.presenceRequired = presenceRequired;
     this.pattern = pattern;
     this.numberPatternGroups = numberPatternGroups;
+    scanner = numberPatternGroups == 0 ? TypedValueScanner.forPattern(pattern) : null;
   }
 
 }
@@ -35,6 +35,11 @@ class CriterionForPathSegment
   final Pattern pattern;
 
   final int numberPatternGroups;
+
+  /*
+   * Used in place of the pattern if the pattern is one of the typed {} patterns.
+   */
+  final TypedValueScanner scanner;
   
   CriterionForPathSegment(int index, String value, RequestPathSegmentCrierionType type, Pattern pattern)
   {
@@ -48,6 +53,7 @@ class CriterionForPathSegment
     this.type = type;
     this.pattern = pattern;
     this.numberPatternGroups = numberPatternGroups;
+    scanner = numberPatternGroups == 0 ? TypedValueScanner.forPattern(pattern) : null;
   }
 
 }
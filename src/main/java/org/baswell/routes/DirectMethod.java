@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A route class method that is called through the class's generated {@link RouteMethodInvoker}.
+ */
+class DirectMethod
+{
+  static final String INVOKER_SUFFIX = "$RoutesInvoker";
+
+  final RouteMethodInvoker invoker;
+
+  final int methodIndex;
+
+  DirectMethod(RouteMethodInvoker invoker, int methodIndex)
+  {
+    this.invoker = invoker;
+    this.methodIndex = methodIndex;
+  }
+
+  Object invoke(Object routeInstance, Object[] parameters) throws InvocationTargetException
+  {
+    return invoker.invoke(routeInstance, methodIndex, parameters);
+  }
+
+  /**
+   * @return The methods (by signature) of the generated invoker for the given route class or an empty map if the route class
+   * doesn't have a generated invoker.
+   * @throws RoutesException If the generated invoker can't be instantiated.
+   */
+  static Map<String, DirectMethod> forClass(Class routesClass) throws RoutesException
+  {
+    Class<?> invokerClass;
+    try
+    {
+      invokerClass = Class.forName(routesClass.getName() + INVOKER_SUFFIX, true, routesClass.getClassLoader());
+    }
+    catch (ClassNotFoundException e)
+    {
+      return Collections.emptyMap();
+    }
+    catch (LinkageError e)
+    {
+      return Collections.emptyMap();
+    }
+
+    if (!RouteMethodInvoker.class.isAssignableFrom(invokerClass))
+    {
+      return Collections.emptyMap();
+    }
+
+    RouteMethodInvoker invoker;
+    try
+    {
+      invoker = (RouteMethodInvoker) invokerClass.getDeclaredConstructor().newInstance();
+    }
+    catch (Exception e)
+    {
+      throw new RoutesException("Unable to instantiate generated route invoker: " + invokerClass, e);
+    }
+
+    Map<String, DirectMethod> directMethods = new HashMap<String, DirectMethod>();
+    String[] signatures = invoker.getMethodSignatures();
+    for (int i = 0; i < signatures.length; i++)
+    {
+      directMethods.put(signatures[i], new DirectMethod(invoker, i));
+    }
+    return directMethods;
+  }
+
+  /**
+   * @return The direct method for the given route class method or null if the route class doesn't have a generated invoker
+   * or the invoker doesn't handle the method.
+   */
+  static DirectMethod find(Map<String, DirectMethod> directMethods, Method method)
+  {
+    return directMethods.isEmpty() ? null : directMethods.get(getSignature(method));
+  }
+
+  /**
+   * @return The signature of the given method as it's generated by {@link RoutesProcessor}.
+   */
+  static String getSignature(Method method)
+  {
+    StringBuilder signature = new StringBuilder(method.getName()).append('(');
+    Class[] parameterTypes = method.getParameterTypes();
+    for (int i = 0; i < parameterTypes.length; i++)
+    {
+      if (i > 0)
+      {
+        signature.append(',');
+      }
+      String typeName = parameterTypes[i].getCanonicalName();
+      signature.append(typeName == null ? parameterTypes[i].getName() : typeName);
+    }
+    return signature.append(')').toString();
+  }
+}
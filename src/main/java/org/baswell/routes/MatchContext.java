@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per thread state used while looking up the route for a request. Everything here is reused across lookups so that checking
+ * candidate routes that do not match allocates nothing. Matchers are reused through {@link Matcher#reset(CharSequence)} and
+ * the path segments and groups captured by a route are held as offsets until a route fully matches and a {@link MatchedRoute}
+ * is created from them.
+ */
+class MatchContext
+{
+  private static final ThreadLocal<MatchContext> contexts = new ThreadLocal<MatchContext>()
+  {
+    @Override
+    protected MatchContext initialValue()
+    {
+      return new MatchContext();
+    }
+  };
+
+  /*
+   * Patterns are only created when the routing table is built so this only grows past this size if the routing table is
+   * rebuilt (ex. development mode).
+   */
+  private static final int MAX_MATCHERS = 1024;
+
+  static MatchContext get()
+  {
+    return contexts.get();
+  }
+
+  final RouteTrie.Candidates candidates = new RouteTrie.Candidates();
+
+  final RoutesCacheKey cacheKeyProbe = new RoutesCacheKey();
+
+  /*
+   * The request path index each path criterion matched (by criterion index).
+   */
+  int[] segmentIndexes = new int[16];
+
+  /*
+   * The values parsed by the TypedValueScanner of each path criterion (by criterion index) and if the value could be parsed.
+   */
+  long[] scannedValues = new long[16];
+
+  boolean[] scanned = new boolean[16];
+
+  /*
+   * Start and end offsets (within the path segment) of the groups captured by the PATTERN path criteria. The groups of a
+   * criterion start at 2 * Criteria.pathGroupOffsets[criterion index].
+   */
+  int[] groupBounds = new int[32];
+
+  /*
+   * The ParameterIndex bits of the request being matched. Only computed once a candidate route requires parameters.
+   */
+  long presentParameters;
+
+  boolean presentParametersComputed;
+
+  private final Map<Pattern, Matcher> matchers = new IdentityHashMap<Pattern, Matcher>();
+
+  /**
+   * @return A matcher for the given pattern reset to the given input. The matcher is only valid until the next call for the same pattern.
+   */
+  Matcher matcher(Pattern pattern, CharSequence input)
+  {
+    Matcher matcher = matchers.get(pattern);
+    if (matcher == null)
+    {
+      if (matchers.size() >= MAX_MATCHERS)
+      {
+        matchers.clear();
+      }
+      matcher = pattern.matcher(input);
+      matchers.put(pattern, matcher);
+    }
+    else
+    {
+      matcher.reset(input);
+    }
+    return matcher;
+  }
+
+  /**
+   * Makes sure there is room for the captures of the given criteria.
+   */
+  void reset(Criteria criteria)
+  {
+    if (segmentIndexes.length < criteria.pathCriteria.size())
+    {
+      segmentIndexes = new int[criteria.pathCriteria.size()];
+      scannedValues = new long[criteria.pathCriteria.size()];
+      scanned = new boolean[criteria.pathCriteria.size()];
+    }
+
+    if (groupBounds.length < (criteria.numberPathGroups * 2))
+    {
+      groupBounds = new int[criteria.numberPathGroups * 2];
+    }
+  }
+}
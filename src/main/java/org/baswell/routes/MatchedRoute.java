@@ -16,21 +16,155 @@
 package org.baswell.routes;
 
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
 
-class MatchedRoute
+import org.baswell.routes.CriterionForPathSegment.RequestPathSegmentCrierionType;
+
+/**
+ * The route a request was matched to along with the route method arguments taken from the request path. Instances are immutable
+ * (the path arguments are Strings or boxed primitives and the array is never exposed) so a MatchedRoute stored in a {@link RoutesCache}
+ * can be shared by any number of threads dispatching requests with the same cache key.
+ */
+final class MatchedRoute
 {
   final RouteNode routeNode;
 
-  final List<Matcher> pathMatchers;
+  /*
+   * The generation of the routing snapshot the route was matched on.
+   */
+  final long generation;
 
-  final Map<String, Matcher> parameterMatchers;
+  /*
+   * The route method arguments taken from the request path by MethodParameter position in RouteNode.parameters (null for
+   * all other parameters). Each value is converted once when the route is matched. A value that could not be converted is
+   * left as the String from the path so the conversion failure is reported when the route method is invoked.
+   */
+  private final Object[] pathArguments;
 
-  public MatchedRoute(RouteNode routeNode, List<Matcher> pathMatchers, Map<String, Matcher> parameterMatchers)
+  MatchedRoute(RouteNode routeNode, long generation, RequestPath path, MatchContext context)
   {
     this.routeNode = routeNode;
-    this.pathMatchers = pathMatchers;
-    this.parameterMatchers = parameterMatchers;
+    this.generation = generation;
+
+    List<MethodParameter> parameters = routeNode.parameters;
+    pathArguments = new Object[parameters.size()];
+    for (int i = 0; i < pathArguments.length; i++)
+    {
+      MethodParameter parameter = parameters.get(i);
+      if (parameter.type == MethodRouteParameterType.ROUTE_PATH)
+      {
+        pathArguments[i] = getPathArgument(parameter, routeNode.criteria, path, context);
+      }
+    }
+  }
+
+  /**
+   * @param position The position of the parameter in RouteNode.parameters.
+   * @return The argument taken from the request path for the ROUTE_PATH parameter at the given position.
+   */
+  Object getPathArgument(int position)
+  {
+    return pathArguments[position];
+  }
+
+  static Object getPathArgument(MethodParameter parameter, Criteria criteria, RequestPath path, MatchContext context)
+  {
+    int criterionIndex = parameter.segmentIndex;
+    CriterionForPathSegment criterion = criteria.pathCriteria.get(criterionIndex);
+    String segment = path.get(context.segmentIndexes[criterionIndex]);
+
+    if (parameter.routhPathParameterType == MethodPathParameterType.STRING)
+    {
+      if ((parameter.groupIndex != null) && (criterion.type == RequestPathSegmentCrierionType.PATTERN) && (parameter.groupIndex < criterion.numberPatternGroups))
+      {
+        int bound = (criteria.pathGroupOffsets[criterionIndex] + parameter.groupIndex) * 2;
+        int start = context.groupBounds[bound];
+        return start == -1 ? null : segment.substring(start, context.groupBounds[bound + 1]);
+      }
+      else
+      {
+        return segment;
+      }
+    }
+    else if ((criterion.scanner != null) && context.scanned[criterionIndex])
+    {
+      Object value = criterion.scanner.toObject(context.scannedValues[criterionIndex]);
+      if (isPathArgumentType(parameter.routhPathParameterType, value))
+      {
+        return value;
+      }
+    }
+
+    try
+    {
+      return toPathArgument(parameter.routhPathParameterType, segment);
+    }
+    catch (RuntimeException e)
+    {
+      return segment;
+    }
+  }
+
+  static Object toPathArgument(MethodPathParameterType type, String segment)
+  {
+    switch (type)
+    {
+      case CHARCTER:
+        return segment.charAt(0);
+
+      case BOOLEAN:
+        return Boolean.parseBoolean(segment);
+
+      case BYTE:
+        return Byte.parseByte(segment);
+
+      case SHORT:
+        return Short.parseShort(segment);
+
+      case INTEGER:
+        return Integer.parseInt(segment);
+
+      case LONG:
+        return Long.parseLong(segment);
+
+      case FLOAT:
+        return Float.parseFloat(segment);
+
+      case DOUBLE:
+        return Double.parseDouble(segment);
+
+      case STRING:
+      default:
+        return segment;
+    }
+  }
+
+  static boolean isPathArgumentType(MethodPathParameterType type, Object value)
+  {
+    switch (type)
+    {
+      case BOOLEAN:
+        return value instanceof Boolean;
+
+      case BYTE:
+        return value instanceof Byte;
+
+      case SHORT:
+        return value instanceof Short;
+
+      case INTEGER:
+        return value instanceof Integer;
+
+      case LONG:
+        return value instanceof Long;
+
+      case FLOAT:
+        return value instanceof Float;
+
+      case DOUBLE:
+        return value instanceof Double;
+
+      default:
+        return false;
+    }
   }
 }
@@ -64,6 +64,11 @@ class MetaHandler
             getRoutes(request, response, parameters);
             return true;
           }
+          else if (path.equals("/stats"))
+          {
+            getStatistics(response);
+            return true;
+          }
         }
         return false;
       }
@@ -122,6 +127,12 @@ class MetaHandler
     writer.write("]");
   }
 
+  void getStatistics(HttpServletResponse response) throws IOException
+  {
+    response.setContentType("application/json");
+    response.getWriter().write(routingTable.getStatistics().toJson());
+  }
+
   byte[] getIndexHtml(String file) throws IOException
   {
     InputStream indexStream = MetaHandler.class.getResourceAsStream("/" + file);
@@ -22,7 +22,6 @@ import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -63,7 +62,7 @@ class MethodInvoker
     this.routeConfiguration = routeConfiguration;
   }
   
-  Object invoke(Object routeInstance, Method method, List<MethodParameter> methodParameters, List<Matcher> pathMatchers, Map<String, Matcher> parameterMatchers) throws InvocationTargetException
+  Object invoke(Object routeInstance, Method method, DirectMethod directMethod, List<MethodParameter> methodParameters, MatchedRoute matchedRoute) throws InvocationTargetException
   {
     Object[] invokeParameters = new Object[methodParameters.size()];
     for (int i = 0; i < methodParameters.size(); i++)
@@ -139,54 +138,13 @@ class MethodInvoker
             break;
             
           case ROUTE_PATH:
-            switch (methodParameter.routhPathParameterType)
+            Object pathArgument = matchedRoute.getPathArgument(i);
+            if ((pathArgument instanceof String) && (methodParameter.routhPathParameterType != MethodPathParameterType.STRING))
             {
-              case STRING:
-                if (methodParameter.groupIndex != null)
-                {
-                  Matcher matcher = pathMatchers.get(methodParameter.segmentIndex);
-                  if ((matcher != null) && (methodParameter.groupIndex < matcher.groupCount()))
-                  {
-                    invokeParameters[i] = matcher.group(methodParameter.groupIndex + 1);
-                    break;
-                  }
-                }
-
-                invokeParameters[i] = requestPath.get(methodParameter.segmentIndex);
-                break;
-                
-              case CHARCTER:
-                invokeParameters[i] = requestPath.getCharacter(methodParameter.segmentIndex);
-                break;
-                
-              case BOOLEAN:
-                invokeParameters[i] = requestPath.getBoolean(methodParameter.segmentIndex);
-                break;
-                
-              case BYTE:
-                invokeParameters[i] = requestPath.getByte(methodParameter.segmentIndex);
-                break;
-                
-              case SHORT:
-                invokeParameters[i] = requestPath.getShort(methodParameter.segmentIndex);
-                break;
-                
-              case INTEGER:
-                invokeParameters[i] = requestPath.getInteger(methodParameter.segmentIndex);
-                break;
-                
-              case LONG:
-                invokeParameters[i] = requestPath.getLong(methodParameter.segmentIndex);
-                break;
-                
-              case FLOAT:
-                invokeParameters[i] = requestPath.getFloat(methodParameter.segmentIndex);
-                break;
-                
-              case DOUBLE:
-                invokeParameters[i] = requestPath.getDouble(methodParameter.segmentIndex);
-                break;
+              // Could not be converted when the route was matched. Convert again so the failure is reported here.
+              pathArgument = MatchedRoute.toPathArgument(methodParameter.routhPathParameterType, (String)pathArgument);
             }
+            invokeParameters[i] = pathArgument;
             break;
             
           case ROUTE_PARAMETER:
@@ -278,6 +236,22 @@ class MethodInvoker
       }
     }
     
+    if (directMethod != null)
+    {
+      try
+      {
+        return directMethod.invoke(routeInstance, invokeParameters);
+      }
+      catch (ClassCastException e)
+      {
+        throw new RoutesException("Invalid parameter mapping for route method: " + method, e);
+      }
+      catch (NullPointerException e)
+      {
+        throw new RoutesException("Invalid parameter mapping for route method: " + method, e);
+      }
+    }
+
     try
     {
       return method.invoke(routeInstance, invokeParameters);
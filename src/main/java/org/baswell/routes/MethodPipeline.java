@@ -20,7 +20,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -41,9 +40,10 @@ class MethodPipeline
     logger = routesConfiguration.logger;
   }
   
-  void invoke(RouteNode routeNode, HttpServletRequest servletRequest, HttpServletResponse servletResponse, HttpMethod httpMethod,
-              RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, RequestContent requestContent, List<Matcher> pathMatchers, Map<String, Matcher> parameterMatchers) throws IOException, ServletException, RouteInstanceBorrowException
+  void invoke(MatchedRoute matchedRoute, HttpServletRequest servletRequest, HttpServletResponse servletResponse, HttpMethod httpMethod,
+              RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, RequestContent requestContent) throws IOException, ServletException, RouteInstanceBorrowException
   {
+    RouteNode routeNode = matchedRoute.routeNode;
     MethodInvoker invoker = new MethodInvoker(servletRequest, servletResponse, httpMethod, path, parameters, requestedMediaType, requestContent, routeNode.routeConfiguration);
     Object routeInstance = routeNode.instance.create();
 
@@ -52,7 +52,7 @@ class MethodPipeline
     {
       for (BeforeRouteNode beforeNode : routeNode.beforeRouteNodes)
       {
-        Object beforeResponse = invoker.invoke(routeInstance, beforeNode.method, beforeNode.parameters, pathMatchers, parameterMatchers);
+        Object beforeResponse = invoker.invoke(routeInstance, beforeNode.method, beforeNode.directMethod, beforeNode.parameters, matchedRoute);
         if (beforeNode.returnsBoolean && (beforeResponse != null) && (!(Boolean)beforeResponse))
         {
           return;
@@ -73,7 +73,7 @@ class MethodPipeline
         }
       }
 
-      Object response = invoker.invoke(routeInstance, routeNode.method, routeNode.parameters, pathMatchers, parameterMatchers);
+      Object response = invoker.invoke(routeInstance, routeNode.method, routeNode.directMethod, routeNode.parameters, matchedRoute);
       responseProcessor.processResponse(routeNode.responseType, routeNode.contentConversionType, response, routeNode.routeConfiguration.contentType, routeNode.routeConfiguration, servletRequest, servletResponse);
 
       boolean success = getStatus(servletResponse) < 300;
@@ -85,7 +85,7 @@ class MethodPipeline
           continue;
         }
 
-        invoker.invoke(routeInstance, afterNode.method, afterNode.parameters, pathMatchers, parameterMatchers);
+        invoker.invoke(routeInstance, afterNode.method, afterNode.directMethod, afterNode.parameters, matchedRoute);
       }
     }
     catch (InvocationTargetException e)
@@ -130,7 +130,7 @@ class MethodPipeline
         {
           try
           {
-            invoker.invoke(routeInstance, afterNode.method, afterNode.parameters, pathMatchers, parameterMatchers);
+            invoker.invoke(routeInstance, afterNode.method, afterNode.directMethod, afterNode.parameters, matchedRoute);
           }
           catch (Exception exc)
           {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+/**
+ * Bounded cache of the request paths (for one HTTP method) that can't match any route no matter what the request parameters
+ * or requested media type are. The cache is direct mapped: each path can only be stored in one slot so a lookup is one array
+ * read and one path comparison. Adding a path to an occupied slot replaces the path that was there.
+ *
+ * A cache belongs to one generation of the routes so it's discarded whenever the routes change. Snapshots that only reorder
+ * the search (see RoutingTable#reorderRoutes) keep the cache of the snapshot they reorder.
+ */
+class NegativeLookupCache
+{
+  /*
+   * Longer paths aren't cached so the memory used by the cache stays bounded.
+   */
+  static final int MAX_PATH_LENGTH = 256;
+
+  /*
+   * Not synchronized. Strings are immutable so a thread reading a slot either sees a complete path or a stale one and a stale
+   * path only costs a cache miss.
+   */
+  private final String[] paths;
+
+  private final int mask;
+
+  /**
+   * @param size The maximum number of paths cached. Rounded up to the next power of two.
+   */
+  NegativeLookupCache(int size)
+  {
+    int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+    paths = new String[capacity];
+    mask = capacity - 1;
+  }
+
+  /*
+   * The request path is hashed and compared in place so checking the cache doesn't build the path string.
+   */
+  boolean contains(RequestPath path)
+  {
+    String cachedPath = paths[indexOf(path.pathHashCode(false))];
+    return (cachedPath != null) && path.pathEquals(cachedPath, false);
+  }
+
+  void add(RequestPath path)
+  {
+    String pathString = path.toString();
+    if (pathString.length() <= MAX_PATH_LENGTH)
+    {
+      paths[indexOf(pathString.hashCode())] = pathString;
+    }
+  }
+
+  private int indexOf(int hash)
+  {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
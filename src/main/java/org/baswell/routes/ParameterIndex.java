@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.baswell.routes.CriterionForParameter.RequestParameterType;
+
+/**
+ * Assigns a bit to each parameter name, and each FIXED parameter name/value pair, that a route requires. Before a route's
+ * criteria are evaluated the request parameters can then be checked against the route with a single mask comparison. Only
+ * the first 64 distinct requirements get a bit, anything past that is left to {@link Criteria#matches}.
+ */
+class ParameterIndex
+{
+  static final int MAX_BITS = 64;
+
+  private final boolean caseInsensitive;
+
+  private final List<String> names = new ArrayList<String>();
+
+  /*
+   * The FIXED value of each requirement (lower cased if case insensitive) or null if only the name is required.
+   */
+  private final List<String> values = new ArrayList<String>();
+
+  ParameterIndex(List<RouteNode> routeNodes, boolean caseInsensitive)
+  {
+    this.caseInsensitive = caseInsensitive;
+
+    for (RouteNode routeNode : routeNodes)
+    {
+      List<CriterionForParameter> parameterCriteria = routeNode.criteria.parameterCriteria;
+      if (parameterCriteria != null)
+      {
+        for (CriterionForParameter parameterCriterion : parameterCriteria)
+        {
+          if (isIndexed(parameterCriterion, routeNode.criteria) && (indexOf(parameterCriterion) == -1) && (names.size() < MAX_BITS))
+          {
+            names.add(parameterCriterion.name);
+            values.add(getValue(parameterCriterion));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The bits of the parameter requirements of the given criteria.
+   */
+  long getRequiredMask(Criteria criteria)
+  {
+    long mask = 0;
+    if (criteria.parameterCriteria != null)
+    {
+      for (CriterionForParameter parameterCriterion : criteria.parameterCriteria)
+      {
+        if (isIndexed(parameterCriterion, criteria))
+        {
+          int bit = indexOf(parameterCriterion);
+          if (bit != -1)
+          {
+            mask |= 1L << bit;
+          }
+        }
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * @return The bits of the parameter requirements the given request parameters meet.
+   */
+  long getPresentMask(RequestParameters parameters)
+  {
+    long mask = 0;
+    for (int bit = 0; bit < names.size(); bit++)
+    {
+      String[] parameterValues = parameters.getValuesArray(names.get(bit));
+      String value = values.get(bit);
+      if (value == null)
+      {
+        if (parameterValues.length > 0)
+        {
+          mask |= 1L << bit;
+        }
+      }
+      else
+      {
+        for (int i = 0; i < parameterValues.length; i++)
+        {
+          if (value.equals(caseInsensitive ? parameterValues[i].toLowerCase() : parameterValues[i]))
+          {
+            mask |= 1L << bit;
+            break;
+          }
+        }
+      }
+    }
+    return mask;
+  }
+
+  /*
+   * A default value for the parameter means the route does not need the request to provide it. An optional FIXED criterion
+   * only applies if the parameter is present so it can't be expressed as a requirement.
+   */
+  private boolean isIndexed(CriterionForParameter parameterCriterion, Criteria criteria)
+  {
+    return parameterCriterion.presenceRequired && ((criteria.routeConfiguration == null) || !criteria.routeConfiguration.defaultParameters.containsKey(parameterCriterion.name));
+  }
+
+  private String getValue(CriterionForParameter parameterCriterion)
+  {
+    if (parameterCriterion.type == RequestParameterType.FIXED)
+    {
+      return caseInsensitive ? parameterCriterion.value.toLowerCase() : parameterCriterion.value;
+    }
+    else
+    {
+      return null;
+    }
+  }
+
+  private int indexOf(CriterionForParameter parameterCriterion)
+  {
+    String value = getValue(parameterCriterion);
+    for (int i = 0; i < names.size(); i++)
+    {
+      if (names.get(i).equals(parameterCriterion.name) && ((value == null) ? (values.get(i) == null) : value.equals(values.get(i))))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
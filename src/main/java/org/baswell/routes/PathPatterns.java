@@ -0,0 +1,314 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A list of regular expressions (the <code>ONLY</code> and <code>EXCEPT</code> parameters of {@link RoutesFilter}) compiled
+ * into a single matcher. Patterns that are a plain literal, a literal followed by <code>.*</code> or <code>.*</code> followed by
+ * a literal (ex. <code>/api/.*</code> or <code>.*\.html$</code>) are matched by walking a character trie of the literals.
+ * Every other pattern is joined into one alternation regex. Paths are matched as offsets into the request URI so the context
+ * path never has to be cut off of the URI.
+ */
+class PathPatterns
+{
+  /*
+   * Exact and prefix literals.
+   */
+  private final LiteralNode prefixRoot = new LiteralNode();
+
+  /*
+   * Suffix literals stored in reverse.
+   */
+  private final LiteralNode suffixRoot = new LiteralNode();
+
+  private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+  /**
+   * @param regexes The regular expressions to match (at least one).
+   * @throws java.util.regex.PatternSyntaxException If any of the given expressions is not a valid regular expression.
+   */
+  PathPatterns(List<String> regexes)
+  {
+    List<String> alternatives = new ArrayList<String>();
+    for (String regex : regexes)
+    {
+      Pattern pattern = Pattern.compile(regex);
+      if (!addLiteral(regex))
+      {
+        if (hasBackReference(regex))
+        {
+          /*
+           * Group numbers shift when joined with other patterns.
+           */
+          patterns.add(pattern);
+        }
+        else
+        {
+          alternatives.add(regex);
+        }
+      }
+    }
+
+    if (alternatives.size() == 1)
+    {
+      patterns.add(Pattern.compile(alternatives.get(0)));
+    }
+    else if (alternatives.size() > 1)
+    {
+      StringBuilder alternation = new StringBuilder();
+      for (String alternative : alternatives)
+      {
+        if (alternation.length() > 0)
+        {
+          alternation.append('|');
+        }
+        alternation.append("(?:").append(alternative).append(')');
+      }
+      patterns.add(Pattern.compile(alternation.toString()));
+    }
+  }
+
+  /**
+   * @param uri The request URI.
+   * @param start The offset the path to match starts at in the request URI (the length of the context path).
+   * @return True if the path starting at the given offset fully matches any of the patterns.
+   */
+  boolean matches(String uri, int start)
+  {
+    return matchesPrefix(uri, start) || matchesSuffix(uri, start) || matchesPattern(uri, start);
+  }
+
+  private boolean matchesPrefix(String uri, int start)
+  {
+    LiteralNode node = prefixRoot;
+    for (int i = start; ; i++)
+    {
+      if (node.prefix && !hasLineTerminator(uri, i, uri.length()))
+      {
+        return true;
+      }
+      else if (i == uri.length())
+      {
+        return node.exact;
+      }
+
+      node = node.children.get(uri.charAt(i));
+      if (node == null)
+      {
+        return false;
+      }
+    }
+  }
+
+  private boolean matchesSuffix(String uri, int start)
+  {
+    LiteralNode node = suffixRoot;
+    for (int i = uri.length(); ; i--)
+    {
+      if (node.suffix && !hasLineTerminator(uri, start, i))
+      {
+        return true;
+      }
+      else if (i == start)
+      {
+        return false;
+      }
+
+      node = node.children.get(uri.charAt(i - 1));
+      if (node == null)
+      {
+        return false;
+      }
+    }
+  }
+
+  private boolean matchesPattern(String uri, int start)
+  {
+    if (patterns.isEmpty())
+    {
+      return false;
+    }
+
+    MatchContext context = MatchContext.get();
+    for (int i = 0; i < patterns.size(); i++)
+    {
+      Matcher matcher = context.matcher(patterns.get(i), uri);
+      if (matcher.region(start, uri.length()).matches())
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Adds the given regex to the literal tries if it is an exact, prefix (literal.*) or suffix (.*literal) match.
+   */
+  private boolean addLiteral(String regex)
+  {
+    String body = regex;
+    if (body.startsWith("^"))
+    {
+      body = body.substring(1);
+    }
+    if (body.endsWith("$") && !isEscaped(body, body.length() - 1))
+    {
+      body = body.substring(0, body.length() - 1);
+    }
+
+    if (body.endsWith(".*") && !isEscaped(body, body.length() - 2))
+    {
+      String literal = toLiteral(body.substring(0, body.length() - 2));
+      if (literal != null)
+      {
+        prefixRoot.add(literal, false).prefix = true;
+        return true;
+      }
+    }
+
+    if (body.startsWith(".*"))
+    {
+      String literal = toLiteral(body.substring(2));
+      if (literal != null)
+      {
+        suffixRoot.add(literal, true).suffix = true;
+        return true;
+      }
+    }
+
+    String literal = toLiteral(body);
+    if (literal != null)
+    {
+      prefixRoot.add(literal, false).exact = true;
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * @return The string the given regex matches if the regex is a plain literal (only escaped punctuation is allowed) or null.
+   */
+  static String toLiteral(String regex)
+  {
+    StringBuilder literal = new StringBuilder(regex.length());
+    for (int i = 0; i < regex.length(); i++)
+    {
+      char c = regex.charAt(i);
+      if (c == '\\')
+      {
+        if ((i + 1 < regex.length()) && !Character.isLetterOrDigit(regex.charAt(i + 1)))
+        {
+          literal.append(regex.charAt(++i));
+        }
+        else
+        {
+          return null;
+        }
+      }
+      else if (".[]{}()*+?^$|".indexOf(c) != -1)
+      {
+        return null;
+      }
+      else
+      {
+        literal.append(c);
+      }
+    }
+    return literal.toString();
+  }
+
+  /*
+   * Is the character at the given index preceded by an odd number of backslashes?
+   */
+  static boolean isEscaped(String regex, int index)
+  {
+    int backslashes = 0;
+    while ((index - backslashes > 0) && (regex.charAt(index - backslashes - 1) == '\\'))
+    {
+      ++backslashes;
+    }
+    return (backslashes % 2) == 1;
+  }
+
+  static boolean hasBackReference(String regex)
+  {
+    for (int i = 0; i < regex.length() - 1; i++)
+    {
+      if (regex.charAt(i) == '\\')
+      {
+        char next = regex.charAt(i + 1);
+        if (((next >= '1') && (next <= '9')) || (next == 'k'))
+        {
+          return true;
+        }
+        ++i;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Without DOTALL .* stops at line terminators.
+   */
+  static boolean hasLineTerminator(String uri, int start, int end)
+  {
+    for (int i = start; i < end; i++)
+    {
+      char c = uri.charAt(i);
+      if ((c == '\n') || (c == '\r') || (c == '\u0085') || (c == '\u2028') || (c == '\u2029'))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static class LiteralNode
+  {
+    final Map<Character, LiteralNode> children = new HashMap<Character, LiteralNode>();
+
+    boolean exact;
+
+    boolean prefix;
+
+    boolean suffix;
+
+    LiteralNode add(String literal, boolean reverse)
+    {
+      LiteralNode node = this;
+      for (int i = 0; i < literal.length(); i++)
+      {
+        char c = literal.charAt(reverse ? literal.length() - i - 1 : i);
+        LiteralNode child = node.children.get(c);
+        if (child == null)
+        {
+          child = new LiteralNode();
+          node.children.put(c, child);
+        }
+        node = child;
+      }
+      return node;
+    }
+  }
+}
@@ -30,38 +30,43 @@ import static org.baswell.routes.RoutesMethods.*;
  */
 public class RequestParameters
 {
-  final Map<String, List<String>> parameters;
+  static final String[] NO_VALUES = new String[0];
 
-  final String queryString;
+  /*
+   * The parameters as received. This is never modified and is what toString() is built from. For a servlet request this is the
+   * servlet parameter map itself (which is immutable), otherwise it's a map owned by this object.
+   */
+  private final Map<String, String[]> sourceParameters;
+
+  /*
+   * The current parameters. Until the first call to put, set or remove this is the source map itself so no parameter values are
+   * copied for requests that only read their parameters. The value arrays are never modified in place, a changed parameter gets a new array.
+   */
+  private Map<String, String[]> parameters;
+
+  private String queryString;
 
   public RequestParameters(HttpServletRequest request)
   {
-    this(request.getParameterMap());
+    sourceParameters = parameters = request.getParameterMap();
   }
 
+  /**
+   * @param parameterMap The parameters. The map (and its value arrays) are copied so later changes to it aren't seen by this object.
+   */
   public RequestParameters(Map<String, String[]> parameterMap)
   {
-    parameters = new HashMap<String, List<String>>();
-    StringBuilder queryStringBuilder = new StringBuilder();
-    int index = 0;
+    parameters = new LinkedHashMap<String, String[]>();
     for (Entry<String, String[]> entry : parameterMap.entrySet())
     {
-      String key = entry.getKey();
-      String[] values = entry.getValue();
-      parameters.put(key, new ArrayList<String>(Arrays.asList(values)));
-      for (String value : values)
-      {
-        if (index > 0) queryStringBuilder.append('&');
-        ++index;
-        queryStringBuilder.append(key).append('=').append(value);
-      }
+      parameters.put(entry.getKey(), entry.getValue().clone());
     }
-    queryString = queryStringBuilder.toString();
+    sourceParameters = parameters;
   }
 
   public RequestParameters(String queryString)
   {
-    parameters = new HashMap<String, List<String>>();
+    parameters = new LinkedHashMap<String, String[]>();
     String[] parameterValues = queryString.split("&");
     for (String parameterValue : parameterValues)
     {
@@ -72,14 +77,12 @@ public class RequestParameters
         {
           String key = parameter[0].trim();
           String value = parameter[1].trim();
-          if (!parameters.containsKey(key))
-          {
-            parameters.put(key, new ArrayList<String>());
-          }
-          parameters.get(key).add(value);
+          String[] values = parameters.get(key);
+          parameters.put(key, append(values == null ? NO_VALUES : values, value));
         }
       }
     }
+    sourceParameters = parameters;
     this.queryString = queryString;
   }
 
@@ -108,8 +111,7 @@ public class RequestParameters
    */
   public int size(String name)
   {
-    List<String> vals = getValues(name);
-    return vals == null ? 0 : vals.size();
+    return getValuesArray(name).length;
   }
 
   /**
@@ -129,25 +131,14 @@ public class RequestParameters
    */
   public boolean containsContent(String name)
   {
-    if (parameters.containsKey(name))
+    for (String value : getValuesArray(name))
     {
-      List<String> values = parameters.get(name);
-      if (values != null)
+      if (value != null && !value.trim().isEmpty())
       {
-        for (String value : values)
-        {
-          if (value != null && !value.trim().isEmpty())
-          {
-            return true;
-          }
-        }
+        return true;
       }
-      return false;
-    }
-    else
-    {
-      return false;
     }
+    return false;
   }
 
   /**
@@ -156,7 +147,12 @@ public class RequestParameters
    */
   public Map<String, List<String>> getParameterListMap()
   {
-    return new HashMap<String, List<String>>(parameters);
+    Map<String, List<String>> parameterListMap = new HashMap<String, List<String>>();
+    for (Entry<String, String[]> entry : parameters.entrySet())
+    {
+      parameterListMap.put(entry.getKey(), new ArrayList<String>(Arrays.asList(entry.getValue())));
+    }
+    return parameterListMap;
   }
 
   /**
@@ -167,9 +163,10 @@ public class RequestParameters
   public Map<String, String> getParameterMap()
   {
     Map<String, String> parameterMap = new HashMap<String, String>();
-    for (Entry<String, List<String>> entry : parameters.entrySet())
+    for (Entry<String, String[]> entry : parameters.entrySet())
     {
-      parameterMap.put(entry.getKey(), entry.getValue().get(0));
+      String[] values = entry.getValue();
+      parameterMap.put(entry.getKey(), values.length == 0 ? null : values[0]);
     }
     return parameterMap;
   }
@@ -201,14 +198,11 @@ public class RequestParameters
    */
   public String get(String name, @NotNull String defaultValue)
   {
-    if (parameters.containsKey(name))
+    for (String value : getValuesArray(name))
     {
-      for (String value : parameters.get(name))
+      if (hasContent(value))
       {
-        if (hasContent(value))
-        {
-          return value;
-        }
+        return value;
       }
     }
 
@@ -217,14 +211,11 @@ public class RequestParameters
 
   public @Nullable String getOptionalString(String name, @Nullable String defaultValue)
   {
-    if (parameters.containsKey(name))
+    for (String value : getValuesArray(name))
     {
-      for (String value : parameters.get(name))
+      if (hasContent(value))
       {
-        if (hasContent(value))
-        {
-          return value;
-        }
+        return value;
       }
     }
 
@@ -232,6 +223,34 @@ public class RequestParameters
   }
 
 
+  /*
+   * The values for the given parameter without a copy. The returned array must not be modified.
+   */
+  String[] getValuesArray(String name)
+  {
+    String[] values = parameters.get(name);
+    return values == null ? NO_VALUES : values;
+  }
+
+  /*
+   * The values the given parameter had when this object was created (put, set and remove don't change these) without a copy.
+   * The returned array must not be modified.
+   */
+  String[] getReceivedValuesArray(String name)
+  {
+    String[] values = sourceParameters.get(name);
+    return values == null ? NO_VALUES : values;
+  }
+
+  /*
+   * The values for the given parameter without a copy. The returned list must not be modified.
+   */
+  List<String> getValuesView(String name)
+  {
+    String[] values = parameters.get(name);
+    return values == null ? Collections.<String>emptyList() : Arrays.asList(values);
+  }
+
   /**
    *
    * @param name The parameter name.
@@ -239,12 +258,7 @@ public class RequestParameters
    */
   public List<String> getValues(String name)
   {
-    List<String> values = new ArrayList<String>();
-    if (parameters.containsKey(name))
-    {
-      values.addAll(parameters.get(name));
-    }
-    return values;
+    return new ArrayList<String>(Arrays.asList(getValuesArray(name)));
   }
 
   /**
@@ -265,9 +279,10 @@ public class RequestParameters
    */
   public Character getCharacter(String name, Character defaultValue)
   {
-    if (parameters.containsKey(name))
+    String[] values = getValuesArray(name);
+    if (values.length > 0)
     {
-      return parameters.get(name).get(0).charAt(0);
+      return values[0].charAt(0);
     }
     else
     {
@@ -283,10 +298,7 @@ public class RequestParameters
   public List<Character> getCharacters(String name)
   {
     List<Character> values = new ArrayList<Character>();
-    if (parameters.containsKey(name))
-    {
-      for (String value : parameters.get(name)) if (!values.isEmpty()) values.add(value.charAt(0));
-    }
+    for (String value : getValuesArray(name)) if (!values.isEmpty()) values.add(value.charAt(0));
     return values;
   }
 
@@ -784,7 +796,10 @@ public class RequestParameters
    */
   public void remove(String name)
   {
-    parameters.remove(name);
+    if (parameters.containsKey(name))
+    {
+      copyOnWrite().remove(name);
+    }
   }
 
   /**
@@ -795,38 +810,69 @@ public class RequestParameters
    */
   public void put(String name, Object value)
   {
-    List<String> values = new ArrayList<String>();
+    String[] values = getValuesArray(name);
     if (value instanceof Collection)
     {
       for (Object collectionValue : (Collection) value)
       {
-        values.add(collectionValue.toString());
+        values = append(values, collectionValue.toString());
       }
     }
     else
     {
-      values.add(value.toString());
+      values = append(values, value.toString());
     }
 
-    if (parameters.containsKey(name))
-    {
-      parameters.get(name).addAll(values);
-    }
-    else
-    {
-      parameters.put(name, values);
-    }
+    copyOnWrite().put(name, values);
   }
 
+  /**
+   * @return The query string built from the parameters this object was created with (modifications by put and remove are not included).
+   */
   @Override
   public String toString()
   {
+    if (queryString == null)
+    {
+      StringBuilder queryStringBuilder = new StringBuilder();
+      int index = 0;
+      for (Entry<String, String[]> entry : sourceParameters.entrySet())
+      {
+        String key = entry.getKey();
+        for (String value : entry.getValue())
+        {
+          if (index > 0) queryStringBuilder.append('&');
+          ++index;
+          queryStringBuilder.append(key).append('=').append(value);
+        }
+      }
+      queryString = queryStringBuilder.toString();
+    }
     return queryString;
   }
 
   void set(String name, List<String> values)
   {
-    parameters.put(name, values);
+    copyOnWrite().put(name, values.toArray(new String[values.size()]));
+  }
+
+  /*
+   * The parameters are only copied the first time they are modified.
+   */
+  private Map<String, String[]> copyOnWrite()
+  {
+    if (parameters == sourceParameters)
+    {
+      parameters = new LinkedHashMap<String, String[]>(sourceParameters);
+    }
+    return parameters;
+  }
+
+  private static String[] append(String[] values, String value)
+  {
+    String[] appended = Arrays.copyOf(values, values.length + 1);
+    appended[values.length] = value;
+    return appended;
   }
 
   private String getNumber(String name) { return get(name).replace(",", "").trim(); }
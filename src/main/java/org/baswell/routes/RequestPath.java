@@ -18,6 +18,7 @@ package org.baswell.routes;
 import javax.servlet.http.HttpServletRequest;
 import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -35,35 +36,128 @@ import java.util.List;
  * </pre>
  *
  * <p>
- * This class is immutable. All modification operations (ex. {@link #pop()}) result in new {@code RequestPath} objects returned.
+ * The path this class represents never changes. All modification operations (ex. {@link #pop()}) result in new {@code RequestPath}
+ * objects returned.
  * </p>
  *
+ * <p>
+ * The segments are held as offsets into the request URI. A segment is only decoded (if it contains escapes) and copied out of the
+ * URI the first time it's asked for, and the path string is only built the first time {@link #toString()} is called. These are
+ * filled in without locking so a path shared between threads (ex. one held by a cached {@link RoutesCacheKey}) can have the same
+ * segment filled in by more than one thread at once. This is harmless since every thread computes the same string from the same
+ * source and strings are safely published.
+ * </p>
  */
 public class RequestPath
 {
-  private final List<String> segments;
+  /*
+   * The string the segments are taken from (the request URI or, if the whole path had to be decoded up front, the decoded path).
+   * Null if the segments were given when this path was created.
+   */
+  private final String source;
+
+  /*
+   * The start and end offset of each segment in the source.
+   */
+  private final int[] bounds;
+
+  /*
+   * Which segments contain escapes (null if none do).
+   */
+  private final boolean[] escaped;
+
+  /*
+   * The segments materialized so far.
+   */
+  private final String[] segments;
 
-  private final String path;
+  private String path;
 
   RequestPath(HttpServletRequest servletRequest)
   {
-    this(parseUrlSegments(servletRequest.getRequestURI(), servletRequest.getContextPath()));
+    this(servletRequest.getRequestURI(), servletRequest.getContextPath());
   }
 
   RequestPath(String path)
   {
-    this(parseUrlSegments(path, ""));
+    this(path, "");
   }
 
   RequestPath(List<String> segments)
   {
-    this.segments = segments == null ? new ArrayList<String>() : segments;
-    StringBuilder pathBuilder = new StringBuilder();
-    for (int i = 0; i < segments.size(); i++)
+    source = null;
+    bounds = null;
+    escaped = null;
+    this.segments = segments == null ? new String[0] : segments.toArray(new String[segments.size()]);
+  }
+
+  private RequestPath(String url, String contextPath)
+  {
+    int start = url.startsWith(contextPath) ? contextPath.length() : 0;
+    boolean decoded = requiresFullDecode(url, start);
+    if (decoded)
+    {
+      url = decode(url.substring(start)).trim();
+      start = 0;
+    }
+    source = url;
+
+    if ((start < url.length()) && (url.charAt(start) == '/'))
+    {
+      ++start;
+    }
+
+    int[] bounds = new int[16];
+    boolean[] escaped = null;
+    int size = 0;
+    while (start < url.length())
     {
-      pathBuilder.append('/').append(segments.get(i));
+      int end = url.indexOf('/', start);
+      if (end == -1)
+      {
+        end = url.length();
+      }
+
+      if ((size * 2) == bounds.length)
+      {
+        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+      }
+      bounds[size * 2] = start;
+      bounds[(size * 2) + 1] = end;
+
+      for (int i = start; !decoded && (i < end); i++)
+      {
+        char c = url.charAt(i);
+        if ((c == '%') || (c == '+'))
+        {
+          if (escaped == null)
+          {
+            escaped = new boolean[Math.max(16, size + 1)];
+          }
+          else if (size >= escaped.length)
+          {
+            escaped = Arrays.copyOf(escaped, Math.max(escaped.length * 2, size + 1));
+          }
+          escaped[size] = true;
+          break;
+        }
+      }
+
+      ++size;
+      start = end + 1;
     }
-    path = pathBuilder.toString();
+
+    this.bounds = bounds;
+    this.escaped = escaped;
+    segments = new String[size];
+  }
+
+  private RequestPath(RequestPath requestPath, int from)
+  {
+    source = requestPath.source;
+    bounds = requestPath.bounds == null ? null : Arrays.copyOfRange(requestPath.bounds, from * 2, requestPath.segments.length * 2);
+    escaped = requestPath.escaped == null ? null : Arrays.copyOfRange(requestPath.escaped, Math.min(from, requestPath.escaped.length), requestPath.escaped.length);
+    segments = Arrays.copyOfRange(requestPath.segments, from, requestPath.segments.length);
   }
 
   /**
@@ -72,7 +166,7 @@ public class RequestPath
    */
   public int size()
   {
-    return segments.size();
+    return segments.length;
   }
 
   /**
@@ -83,7 +177,17 @@ public class RequestPath
    */
   public String get(int index) throws IndexOutOfBoundsException
   {
-    return segments.get(index);
+    String segment = segments[index];
+    if (segment == null)
+    {
+      segment = source.substring(bounds[index * 2], bounds[(index * 2) + 1]);
+      if (isEscaped(index))
+      {
+        segment = decode(segment);
+      }
+      segments[index] = segment;
+    }
+    return segment;
   }
 
   /**
@@ -94,7 +198,134 @@ public class RequestPath
    */
   public char getCharacter(int index) throws IndexOutOfBoundsException
   {
-    return segments.get(index).charAt(0);
+    return get(index).charAt(0);
+  }
+
+  /**
+   * Compares the segment at the given index to the given value without copying the segment out of the request URI.
+   *
+   * @throws IndexOutOfBoundsException If index < 0 or index >= {@link #size()}
+   */
+  boolean segmentEquals(int index, String value, boolean ignoreCase) throws IndexOutOfBoundsException
+  {
+    return segmentEquals(index, value, 0, value.length(), ignoreCase);
+  }
+
+  /*
+   * Compares the segment at the given index to the given region of value.
+   */
+  private boolean segmentEquals(int index, String value, int start, int end, boolean ignoreCase)
+  {
+    int length = end - start;
+    if (isRaw(index))
+    {
+      int segmentStart = bounds[index * 2];
+      return ((bounds[(index * 2) + 1] - segmentStart) == length) && source.regionMatches(ignoreCase, segmentStart, value, start, length);
+    }
+    else
+    {
+      String segment = get(index);
+      return (segment.length() == length) && segment.regionMatches(ignoreCase, 0, value, start, length);
+    }
+  }
+
+  /**
+   * Same as {@code get(index).equals(requestPath.get(otherIndex))} without copying either segment out of its request URI.
+   */
+  boolean segmentEquals(int index, RequestPath requestPath, int otherIndex)
+  {
+    if (requestPath.isRaw(otherIndex))
+    {
+      return segmentEquals(index, requestPath.source, requestPath.bounds[otherIndex * 2], requestPath.bounds[(otherIndex * 2) + 1], false);
+    }
+    else
+    {
+      String segment = requestPath.get(otherIndex);
+      return segmentEquals(index, segment, 0, segment.length(), false);
+    }
+  }
+
+  /**
+   * Same as {@code get(index).hashCode()} without copying the segment out of the request URI.
+   */
+  int segmentHashCode(int index)
+  {
+    return isRaw(index) ? hashCode(0, source, bounds[index * 2], bounds[(index * 2) + 1], false) : get(index).hashCode();
+  }
+
+  /**
+   * Same as {@code toString().hashCode()} (or {@code foldCase(toString()).hashCode()} if ignoreCase) without building the path.
+   */
+  int pathHashCode(boolean ignoreCase)
+  {
+    int hash = 0;
+    for (int i = 0; i < segments.length; i++)
+    {
+      hash = (31 * hash) + '/';
+      if (isRaw(i))
+      {
+        hash = hashCode(hash, source, bounds[i * 2], bounds[(i * 2) + 1], ignoreCase);
+      }
+      else
+      {
+        String segment = get(i);
+        hash = hashCode(hash, segment, 0, segment.length(), ignoreCase);
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Same as {@code toString().equals(path)} (or {@code toString().equalsIgnoreCase(path)} if ignoreCase) without building the path.
+   */
+  boolean pathEquals(String path, boolean ignoreCase)
+  {
+    int offset = 0;
+    for (int i = 0; i < segments.length; i++)
+    {
+      if ((offset == path.length()) || (path.charAt(offset) != '/'))
+      {
+        return false;
+      }
+
+      int end = path.indexOf('/', ++offset);
+      if (end == -1)
+      {
+        end = path.length();
+      }
+
+      if (!segmentEquals(i, path, offset, end, ignoreCase))
+      {
+        return false;
+      }
+      offset = end;
+    }
+    return offset == path.length();
+  }
+
+  /*
+   * String.hashCode of the given region continued from the given hash.
+   */
+  static int hashCode(int hash, String value, int start, int end, boolean ignoreCase)
+  {
+    for (int i = start; i < end; i++)
+    {
+      hash = (31 * hash) + (ignoreCase ? RoutesMethods.foldCase(value.charAt(i)) : value.charAt(i));
+    }
+    return hash;
+  }
+
+  /*
+   * True if the segment at the given index hasn't been materialized and can be read straight from the source.
+   */
+  private boolean isRaw(int index)
+  {
+    return (segments[index] == null) && !isEscaped(index);
+  }
+
+  private boolean isEscaped(int index)
+  {
+    return (escaped != null) && (index < escaped.length) && escaped[index];
   }
 
   /**
@@ -198,7 +429,7 @@ public class RequestPath
    */
   public boolean startsWith(List<String> segments)
   {
-    if (segments.size() > this.segments.size())
+    if (segments.size() > size())
     {
       return false;
     }
@@ -206,7 +437,7 @@ public class RequestPath
     {
       for (int i = 0; i < segments.size(); i++)
       {
-        if (!segments.get(i).equals(this.segments.get(i)))
+        if (!segmentEquals(i, segments.get(i), false))
         {
           return false;
         }
@@ -234,7 +465,11 @@ public class RequestPath
    */
   public RequestPath pop(int numberSegments) throws IndexOutOfBoundsException
   {
-    return new RequestPath(segments.subList(numberSegments, segments.size()));
+    if ((numberSegments < 0) || (numberSegments > size()))
+    {
+      throw new IndexOutOfBoundsException("Cannot pop " + numberSegments + " segments from a path of " + size() + " segments.");
+    }
+    return new RequestPath(this, numberSegments);
   }
 
   /**
@@ -257,13 +492,13 @@ public class RequestPath
    */
   public String getFileName()
   {
-    if (segments.isEmpty())
+    if (segments.length == 0)
     {
       return null;
     }
     else
     {
-      String fileNameCandidate = segments.get(segments.size() - 1);
+      String fileNameCandidate = get(segments.length - 1);
       int lastIndex = fileNameCandidate.lastIndexOf('.');
       return lastIndex > 0 && lastIndex < fileNameCandidate.length() ? fileNameCandidate : null;
     }
@@ -295,7 +530,7 @@ public class RequestPath
    */
   public RequestPath substring(int index) throws IndexOutOfBoundsException
   {
-    return new RequestPath(path.substring(index));
+    return new RequestPath(toString().substring(index));
   }
 
   /**
@@ -315,18 +550,47 @@ public class RequestPath
    */
   public boolean equals(List<String> segments)
   {
-    return this.segments.equals(segments);
+    return (segments.size() == size()) && startsWith(segments);
   }
 
   @Override
   public boolean equals(Object object)
   {
-    return (object instanceof RequestPath) && ((RequestPath)object).segments.equals(segments);
+    if (!(object instanceof RequestPath) || (((RequestPath)object).size() != size()))
+    {
+      return false;
+    }
+
+    RequestPath requestPath = (RequestPath)object;
+    for (int i = 0; i < size(); i++)
+    {
+      if (!requestPath.get(i).equals(get(i)))
+      {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public String toString()
   {
+    if ((path == null) && (bounds != null) && (escaped == null) && (segments.length > 0) && (bounds[0] > 0) && (source.charAt(bounds[0] - 1) == '/'))
+    {
+      /*
+       * The segments are contiguous in the source (separated by single slashes).
+       */
+      path = source.substring(bounds[0] - 1, bounds[(segments.length * 2) - 1]);
+    }
+    else if (path == null)
+    {
+      StringBuilder pathBuilder = new StringBuilder();
+      for (int i = 0; i < segments.length; i++)
+      {
+        pathBuilder.append('/').append(get(i));
+      }
+      path = pathBuilder.toString();
+    }
     return path;
   }
 
@@ -335,6 +599,44 @@ public class RequestPath
     return parseUrlSegments(url, "");
   }
 
+  /*
+   * Decoding segment by segment gives the same segments as decoding the whole path and then splitting it unless an escaped
+   * slash (%2F) adds a segment or the trim of the decoded path could remove decoded whitespace from either end.
+   */
+  static boolean requiresFullDecode(String url, int start)
+  {
+    int length = url.length();
+    if (start >= length)
+    {
+      return false;
+    }
+
+    char first = url.charAt(start);
+    char last = url.charAt(length - 1);
+    if ((first <= ' ') || (first == '%') || (first == '+') || (last <= ' ') || (last == '+') || (((length - 3) >= start) && (url.charAt(length - 3) == '%')))
+    {
+      return true;
+    }
+
+    for (int i = url.indexOf('%', start); (i != -1) && (i < (length - 2)); i = url.indexOf('%', i + 1))
+    {
+      if ((url.charAt(i + 1) == '2') && ((url.charAt(i + 2) == 'F') || (url.charAt(i + 2) == 'f')))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * All URL decoding of request paths goes through here so paths are decoded the same way everywhere.
+   */
+  @SuppressWarnings("deprecation")
+  static String decode(String url)
+  {
+    return URLDecoder.decode(url);
+  }
+
   static List<String> parseUrlSegments(String url, String contextPath)
   {
     if (url.startsWith(contextPath))
@@ -342,7 +644,7 @@ public class RequestPath
       url = url.substring(contextPath.length(), url.length());
     }
     
-    url = URLDecoder.decode(url).trim();
+    url = decode(url).trim();
     List<String> urlSegments = new ArrayList<String>();
     if (url.startsWith("/"))
     {
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.baswell.routes.CriterionForPathSegment.RequestPathSegmentCrierionType;
+
+/**
+ * Build time analysis of which routes can match the same request. Every check here is conservative: two routes are only
+ * reported as disjoint (or one as shadowing the other) if that holds for every possible request.
+ */
+class RouteAnalysis
+{
+  /**
+   * @return The routes (of the given routes in priority order) that can never be matched because a route before them matches
+   * every request they match. The value of each entry is the route that shadows the key.
+   */
+  static Map<RouteNode, RouteNode> findShadowed(List<RouteNode> sortedRouteNodes, boolean caseInsensitive)
+  {
+    Map<RouteNode, RouteNode> shadowed = new IdentityHashMap<RouteNode, RouteNode>();
+    for (int i = 1; i < sortedRouteNodes.size(); i++)
+    {
+      RouteNode routeNode = sortedRouteNodes.get(i);
+      for (int j = 0; j < i; j++)
+      {
+        RouteNode earlierRouteNode = sortedRouteNodes.get(j);
+        if (!shadowed.containsKey(earlierRouteNode) && shadows(earlierRouteNode.criteria, routeNode.criteria, caseInsensitive))
+        {
+          shadowed.put(routeNode, earlierRouteNode);
+          break;
+        }
+      }
+    }
+    return shadowed;
+  }
+
+  /**
+   * Moves the routes with more hits ahead of the routes with fewer hits. A route is only moved ahead of routes it can't
+   * overlap with so the first route that matches any request is the same before and after the reordering.
+   *
+   * @param routeNodes The routes in priority order (or an earlier reordering of it).
+   * @param hits The hits of each route (by position).
+   * @return The reordered routes.
+   */
+  static List<RouteNode> reorderByHits(List<RouteNode> routeNodes, long[] hits, boolean caseInsensitive)
+  {
+    List<RouteNode> reordered = new ArrayList<RouteNode>(routeNodes);
+    long[] reorderedHits = hits.clone();
+    for (int i = 1; i < reordered.size(); i++)
+    {
+      int position = i;
+      while ((position > 0) && (reorderedHits[position] > reorderedHits[position - 1]) && !canOverlap(reordered.get(position).criteria, reordered.get(position - 1).criteria, caseInsensitive))
+      {
+        Collections.swap(reordered, position, position - 1);
+        long swappedHits = reorderedHits[position];
+        reorderedHits[position] = reorderedHits[position - 1];
+        reorderedHits[position - 1] = swappedHits;
+        --position;
+      }
+    }
+    return reordered;
+  }
+
+  /**
+   * @return False if no request can match both criteria.
+   */
+  static boolean canOverlap(Criteria criteria, Criteria otherCriteria, boolean caseInsensitive)
+  {
+    EnumSet<HttpMethod> methods = EnumSet.copyOf(criteria.respondsToMethods);
+    methods.retainAll(otherCriteria.respondsToMethods);
+    if (methods.isEmpty())
+    {
+      return false;
+    }
+
+    if (!criteria.respondsToMedia.isEmpty() && !otherCriteria.respondsToMedia.isEmpty())
+    {
+      EnumSet<MediaType> media = EnumSet.copyOf(criteria.respondsToMedia);
+      media.retainAll(otherCriteria.respondsToMedia);
+      if (media.isEmpty())
+      {
+        return false;
+      }
+    }
+
+    List<CriterionForPathSegment> pathCriteria = criteria.pathCriteria;
+    List<CriterionForPathSegment> otherPathCriteria = otherCriteria.pathCriteria;
+    if (!criteria.hasMultiPathCriterion && !otherCriteria.hasMultiPathCriterion && (pathCriteria.size() != otherPathCriteria.size()))
+    {
+      return false;
+    }
+    else if (!criteria.hasMultiPathCriterion && otherCriteria.hasMultiPathCriterion && (pathCriteria.size() < countSingleSegmentCriteria(otherPathCriteria)))
+    {
+      return false;
+    }
+    else if (criteria.hasMultiPathCriterion && !otherCriteria.hasMultiPathCriterion && (otherPathCriteria.size() < countSingleSegmentCriteria(pathCriteria)))
+    {
+      return false;
+    }
+
+    /*
+     * Up to the first MULTI criterion of either route both routes match the same path position.
+     */
+    for (int i = 0; (i < pathCriteria.size()) && (i < otherPathCriteria.size()); i++)
+    {
+      CriterionForPathSegment criterion = pathCriteria.get(i);
+      CriterionForPathSegment otherCriterion = otherPathCriteria.get(i);
+      if ((criterion.type == RequestPathSegmentCrierionType.MULTI) || (otherCriterion.type == RequestPathSegmentCrierionType.MULTI))
+      {
+        break;
+      }
+      else if (!canOverlap(criterion, otherCriterion, caseInsensitive))
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return True if every request the later criteria match is also matched by the earlier criteria.
+   */
+  static boolean shadows(Criteria earlierCriteria, Criteria laterCriteria, boolean caseInsensitive)
+  {
+    if (!earlierCriteria.respondsToMethods.containsAll(laterCriteria.respondsToMethods))
+    {
+      return false;
+    }
+    else if (!earlierCriteria.respondsToMedia.isEmpty() && (laterCriteria.respondsToMedia.isEmpty() || !earlierCriteria.respondsToMedia.containsAll(laterCriteria.respondsToMedia)))
+    {
+      return false;
+    }
+    else if ((earlierCriteria.parameterCriteria != null) && !earlierCriteria.parameterCriteria.isEmpty())
+    {
+      return false;
+    }
+
+    List<CriterionForPathSegment> earlierPathCriteria = earlierCriteria.pathCriteria;
+    List<CriterionForPathSegment> laterPathCriteria = laterCriteria.pathCriteria;
+
+    /*
+     * The only MULTI criterion handled is a single trailing one (ex. /files/**). Anything past its position is matched by it.
+     */
+    int earlierSize = earlierPathCriteria.size();
+    boolean earlierEndsWithMulti = false;
+    if (earlierCriteria.hasMultiPathCriterion)
+    {
+      if ((countSingleSegmentCriteria(earlierPathCriteria) != (earlierSize - 1)) || (earlierPathCriteria.get(earlierSize - 1).type != RequestPathSegmentCrierionType.MULTI))
+      {
+        return false;
+      }
+      earlierEndsWithMulti = true;
+      --earlierSize;
+    }
+
+    if (earlierEndsWithMulti ? (laterPathCriteria.size() < earlierSize) : (laterCriteria.hasMultiPathCriterion || (laterPathCriteria.size() != earlierSize)))
+    {
+      return false;
+    }
+
+    for (int i = 0; i < earlierSize; i++)
+    {
+      if (!covers(earlierPathCriteria.get(i), laterPathCriteria.get(i), caseInsensitive))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * False if no path segment can match both criteria (neither is MULTI).
+   */
+  static boolean canOverlap(CriterionForPathSegment criterion, CriterionForPathSegment otherCriterion, boolean caseInsensitive)
+  {
+    if ((criterion.type == RequestPathSegmentCrierionType.FIXED) && (otherCriterion.type == RequestPathSegmentCrierionType.FIXED))
+    {
+      return caseInsensitive ? criterion.value.equalsIgnoreCase(otherCriterion.value) : criterion.value.equals(otherCriterion.value);
+    }
+    else if (caseInsensitive)
+    {
+      /*
+       * Any case of the fixed value is matched so there is no one value to test the pattern with.
+       */
+      return true;
+    }
+    else if (criterion.type == RequestPathSegmentCrierionType.FIXED)
+    {
+      return matches(otherCriterion, criterion.value);
+    }
+    else if (otherCriterion.type == RequestPathSegmentCrierionType.FIXED)
+    {
+      return matches(criterion, otherCriterion.value);
+    }
+    else
+    {
+      return true;
+    }
+  }
+
+  /*
+   * True if every path segment the later criterion matches is matched by the earlier criterion.
+   */
+  static boolean covers(CriterionForPathSegment earlierCriterion, CriterionForPathSegment laterCriterion, boolean caseInsensitive)
+  {
+    if (laterCriterion.type == RequestPathSegmentCrierionType.MULTI)
+    {
+      return false;
+    }
+    else if (earlierCriterion.type == RequestPathSegmentCrierionType.FIXED)
+    {
+      return (laterCriterion.type == RequestPathSegmentCrierionType.FIXED) && (caseInsensitive ? earlierCriterion.value.equalsIgnoreCase(laterCriterion.value) : earlierCriterion.value.equals(laterCriterion.value));
+    }
+    else if (earlierCriterion.type == RequestPathSegmentCrierionType.PATTERN)
+    {
+      if (laterCriterion.type == RequestPathSegmentCrierionType.PATTERN)
+      {
+        return earlierCriterion.pattern.pattern().equals(laterCriterion.pattern.pattern()) && (earlierCriterion.pattern.flags() == laterCriterion.pattern.flags());
+      }
+      else
+      {
+        return !caseInsensitive && matches(earlierCriterion, laterCriterion.value);
+      }
+    }
+    else
+    {
+      return false;
+    }
+  }
+
+  static boolean matches(CriterionForPathSegment patternCriterion, String value)
+  {
+    return patternCriterion.scanner == null ? patternCriterion.pattern.matcher(value).matches() : patternCriterion.scanner.scan(value, null, null, 0);
+  }
+
+  static int countSingleSegmentCriteria(List<CriterionForPathSegment> pathCriteria)
+  {
+    int count = 0;
+    for (CriterionForPathSegment criterion : pathCriteria)
+    {
+      if (criterion.type != RequestPathSegmentCrierionType.MULTI)
+      {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
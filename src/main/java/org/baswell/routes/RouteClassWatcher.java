@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the added route objects whose class files (or the class files of their super classes) have changed since they were
+ * last checked. Class files are compared by their last modified time and length. Classes loaded from a jar file are compared
+ * by the jar file.
+ *
+ * When available a {@link WatchService} on the directories of the class files is used to wake the development mode thread as
+ * soon as a class file is written. Otherwise (or for class files in jar files) changes are only picked up every development
+ * reload cycle.
+ */
+class RouteClassWatcher
+{
+  /*
+   * How long to wait after the first change event for the rest of the class files to be written.
+   */
+  static final long SETTLE_MILLISECONDS = 100;
+
+  private final Map<Object, String> signatures = new HashMap<Object, String>();
+
+  private final Set<Path> watchedDirectories = new HashSet<Path>();
+
+  private final RoutesLogger logger;
+
+  private WatchService watchService;
+
+  RouteClassWatcher(RoutesLogger logger)
+  {
+    this.logger = logger;
+    try
+    {
+      watchService = FileSystems.getDefault().newWatchService();
+    }
+    catch (Exception e)
+    {
+      watchService = null;
+    }
+  }
+
+  /**
+   * @param routeObjects The route class or instance objects currently in the routing table.
+   * @return The route objects whose class files have changed since the last call. Route objects that haven't been seen before
+   * are recorded but not returned.
+   */
+  List<Object> findChanged(List<Object> routeObjects)
+  {
+    List<Object> changed = new ArrayList<Object>();
+    Map<Object, String> currentSignatures = new HashMap<Object, String>();
+    for (Object routeObject : routeObjects)
+    {
+      String signature = getSignature(routeObject instanceof Class ? (Class) routeObject : routeObject.getClass());
+      String lastSignature = signatures.get(routeObject);
+      if ((lastSignature != null) && !lastSignature.equals(signature))
+      {
+        changed.add(routeObject);
+      }
+      currentSignatures.put(routeObject, signature);
+    }
+
+    signatures.clear();
+    signatures.putAll(currentSignatures);
+    return changed;
+  }
+
+  /**
+   * Blocks until a class file in one of the watched directories changes or the given number of seconds have passed.
+   */
+  void await(int seconds) throws InterruptedException
+  {
+    long milliseconds = Math.max(1, seconds) * 1000L;
+    if (watchService == null)
+    {
+      Thread.sleep(milliseconds);
+    }
+    else
+    {
+      WatchKey watchKey = watchService.poll(milliseconds, TimeUnit.MILLISECONDS);
+      if (watchKey != null)
+      {
+        Thread.sleep(SETTLE_MILLISECONDS);
+        while (watchKey != null)
+        {
+          watchKey.pollEvents();
+          watchKey.reset();
+          watchKey = watchService.poll();
+        }
+      }
+    }
+  }
+
+  void close()
+  {
+    if (watchService != null)
+    {
+      try
+      {
+        watchService.close();
+      }
+      catch (IOException e)
+      {}
+      watchService = null;
+    }
+  }
+
+  private String getSignature(Class routesClass)
+  {
+    StringBuilder signature = new StringBuilder();
+    for (Class clazz = routesClass; (clazz != null) && (clazz != Object.class); clazz = clazz.getSuperclass())
+    {
+      File classFile = getClassFile(clazz);
+      if (classFile != null)
+      {
+        watch(classFile);
+        signature.append(classFile.getPath()).append(':').append(classFile.lastModified()).append(':').append(classFile.length()).append(';');
+      }
+    }
+    return signature.toString();
+  }
+
+  private void watch(File classFile)
+  {
+    if ((watchService != null) && classFile.getName().endsWith(".class"))
+    {
+      Path directory = classFile.getParentFile().toPath();
+      if (!watchedDirectories.contains(directory))
+      {
+        watchedDirectories.add(directory);
+        try
+        {
+          directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (Exception e)
+        {
+          if (logger != null)
+          {
+            logger.logError("Unable to watch directory: " + directory + " for route class changes.", e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The class file (or the jar file containing the class file) of the given class or null if the class wasn't loaded from the file system.
+   */
+  static File getClassFile(Class clazz)
+  {
+    String className = clazz.getName();
+    URL url = clazz.getResource(className.substring(className.lastIndexOf('.') + 1) + ".class");
+    if (url == null)
+    {
+      return null;
+    }
+
+    try
+    {
+      if ("file".equals(url.getProtocol()))
+      {
+        return new File(url.toURI());
+      }
+      else if ("jar".equals(url.getProtocol()))
+      {
+        String path = url.getPath();
+        int separatorIndex = path.indexOf("!/");
+        return ((separatorIndex != -1) && path.startsWith("file:")) ? new File(new URI(path.substring(0, separatorIndex))) : null;
+      }
+      else
+      {
+        return null;
+      }
+    }
+    catch (Exception e)
+    {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * <p>
+ * Calls the public methods of one route class without reflection. Implementations are generated at compile time by
+ * {@link org.baswell.routes.RoutesProcessor} as {@code <route class name>$RoutesInvoker} and should not be written by hand.
+ * </p>
+ *
+ * <p>
+ * When the {@link org.baswell.routes.RoutingTable} is built it looks for the generated invoker of each route class. If
+ * found the route, before and after methods of the class are called through the invoker instead of {@code Method.invoke}.
+ * Otherwise the methods are called through reflection as usual.
+ * </p>
+ */
+public interface RouteMethodInvoker
+{
+  /**
+   * @return The signatures of the methods this invoker can call. The position of the signature is the method index passed to
+   * {@link #invoke(Object, int, Object[])}. A signature is the method name followed by the canonical names of the (erased)
+   * parameter types. For example {@code getOrder(int,java.lang.String)}.
+   */
+  String[] getMethodSignatures();
+
+  /**
+   * Calls the method at the given index on the given route instance.
+   *
+   * @param routeInstance The route class instance.
+   * @param methodIndex The index of the method signature in {@link #getMethodSignatures()}.
+   * @param parameters The method parameters.
+   * @return The value returned by the method or {@code null} if the method is void.
+   * @throws InvocationTargetException If the method threw an exception.
+   */
+  Object invoke(Object routeInstance, int methodIndex, Object[] parameters) throws InvocationTargetException;
+}
@@ -18,12 +18,18 @@ package org.baswell.routes;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 class RouteNode implements Comparable<RouteNode>
 {
   final int index;
 
   final Method method;
+
+  /*
+   * Calls the method through the generated route invoker. Null if the route class doesn't have one.
+   */
+  final DirectMethod directMethod;
   
   final RouteConfiguration routeConfiguration;
 
@@ -41,10 +47,16 @@ class RouteNode implements Comparable<RouteNode>
 
   final List<AfterRouteNode> afterRouteNodes;
 
-  RouteNode(int index, Method method, RouteConfiguration routeConfiguration, RouteInstance instance, Criteria criteria, List<MethodParameter> parameters, ResponseType responseType, ContentConversionType contentConversionType, List<BeforeRouteNode> beforeRouteNodes, final List<AfterRouteNode> afterRouteNodes)
+  /*
+   * The number of requests this route has matched. Used to search the most frequently matched routes first.
+   */
+  final LongAdder hits = new LongAdder();
+
+  RouteNode(int index, Method method, DirectMethod directMethod, RouteConfiguration routeConfiguration, RouteInstance instance, Criteria criteria, List<MethodParameter> parameters, ResponseType responseType, ContentConversionType contentConversionType, List<BeforeRouteNode> beforeRouteNodes, final List<AfterRouteNode> afterRouteNodes)
   {
     this.index = index;
     this.method = method;
+    this.directMethod = directMethod;
     this.routeConfiguration = routeConfiguration;
     this.instance = instance;
     this.criteria = criteria;
@@ -90,6 +102,15 @@ class RouteNode implements Comparable<RouteNode>
     return null;
   }
 
+  /*
+   * Identifies this route across builds (ex. in persisted route hits).
+   */
+  String getKey()
+  {
+    Class routesClass = instance.clazz == null ? instance.instance.getClass() : instance.clazz;
+    return routesClass.getName() + "." + DirectMethod.getSignature(method) + " " + routeConfiguration.route;
+  }
+
   @Override
   public int compareTo(RouteNode routeNode)
   {
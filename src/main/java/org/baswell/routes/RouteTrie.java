@@ -0,0 +1,423 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.baswell.routes.RoutesMethods.*;
+
+/**
+ * Prefix tree of the route path criteria keyed on the FIXED path segments. PATTERN segments are followed through one edge per
+ * distinct pattern at that position so a pattern shared by many routes (ex. the {} int pattern) is only evaluated once per
+ * request segment. Routes with a MULTI (**) segment are parked at the depth of their first MULTI segment. Routes whose path
+ * criteria are all FIXED are kept out of the tree and looked up by their full path instead.
+ *
+ * The trie only narrows down the candidate routes for a request path. Each candidate is identified by its position in the
+ * route list so candidates can be evaluated in the order the routes are searched (see {@link RoutingSnapshot#searchOrder}).
+ */
+class RouteTrie
+{
+  static final int[] NO_ROUTES = new int[0];
+
+  /*
+   * All route nodes in search order. Candidate positions index into this array.
+   */
+  final RouteNode[] routeNodes;
+
+  /*
+   * The ParameterIndex bits required by each route (by position).
+   */
+  final long[] requiredParameterMasks;
+
+  final ParameterIndex parameterIndex;
+
+  private final TrieNode root = new TrieNode();
+
+  /*
+   * Open addressed table of the full paths (as returned by RequestPath.toString() and case folded if case insensitive) of the
+   * routes with only FIXED path criteria. Request paths are hashed and compared in place (see RequestPath.pathHashCode and
+   * RequestPath.pathEquals) so a lookup doesn't build the request's path string.
+   */
+  private final String[] fixedPaths;
+
+  private final int[] fixedPathHashes;
+
+  private final int[][] fixedPathRoutes;
+
+  private final boolean caseInsensitive;
+
+  /**
+   * @param sortedRouteNodes The route nodes in search order.
+   * @param caseInsensitive Are fixed path segments matched case insensitive?
+   * @param parameterIndex The index of the parameters required by routes.
+   */
+  RouteTrie(List<RouteNode> sortedRouteNodes, boolean caseInsensitive, ParameterIndex parameterIndex)
+  {
+    this.caseInsensitive = caseInsensitive;
+    this.parameterIndex = parameterIndex;
+    routeNodes = sortedRouteNodes.toArray(new RouteNode[sortedRouteNodes.size()]);
+    requiredParameterMasks = new long[routeNodes.length];
+
+    Map<String, int[]> fixedPathMap = new HashMap<String, int[]>();
+    for (int i = 0; i < routeNodes.length; i++)
+    {
+      Criteria criteria = routeNodes[i].criteria;
+      requiredParameterMasks[i] = parameterIndex.getRequiredMask(criteria);
+      if (criteria.allCriteriaFixed)
+      {
+        String key = fixedPathKey(criteria.pathCriteria);
+        int[] routes = fixedPathMap.get(key);
+        fixedPathMap.put(key, append(routes == null ? NO_ROUTES : routes, i));
+      }
+      else
+      {
+        insert(i, criteria.pathCriteria);
+      }
+    }
+
+    int capacity = fixedPathMap.isEmpty() ? 0 : Integer.highestOneBit(fixedPathMap.size()) << 2;
+    fixedPaths = new String[capacity];
+    fixedPathHashes = new int[capacity];
+    fixedPathRoutes = new int[capacity][];
+    for (Map.Entry<String, int[]> entry : fixedPathMap.entrySet())
+    {
+      String path = entry.getKey();
+      int hash = path.hashCode();
+      int slot = spread(hash) & (capacity - 1);
+      while (fixedPaths[slot] != null)
+      {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      fixedPaths[slot] = path;
+      fixedPathHashes[slot] = hash;
+      fixedPathRoutes[slot] = entry.getValue();
+    }
+  }
+
+  /**
+   * Routes with all FIXED path criteria are sorted ahead of every other route they can overlap with so if one of these matches
+   * there is no need to look any further.
+   *
+   * @return The positions (in ascending order) of the routes with all FIXED path criteria that could match the given path.
+   */
+  int[] findFixedCandidates(RequestPath path)
+  {
+    if (fixedPaths.length == 0)
+    {
+      return NO_ROUTES;
+    }
+
+    int mask = fixedPaths.length - 1;
+    int hash = path.pathHashCode(caseInsensitive);
+    for (int slot = spread(hash) & mask; fixedPaths[slot] != null; slot = (slot + 1) & mask)
+    {
+      if ((fixedPathHashes[slot] == hash) && path.pathEquals(fixedPaths[slot], caseInsensitive))
+      {
+        return fixedPathRoutes[slot];
+      }
+    }
+    return NO_ROUTES;
+  }
+
+  /**
+   * Fills the candidates of the given context with the positions (in ascending order) of all routes with PATTERN or MULTI path criteria
+   * that could match the given path.
+   */
+  void findCandidates(RequestPath path, MatchContext context)
+  {
+    Candidates candidates = context.candidates;
+    candidates.size = 0;
+    collect(root, path, 0, context);
+    Arrays.sort(candidates.routes, 0, candidates.size);
+  }
+
+  /**
+   * @return False if the request is missing a parameter (or FIXED parameter value) the route at the given position requires.
+   */
+  boolean hasRequiredParameters(int position, RequestParameters parameters, MatchContext context)
+  {
+    long requiredMask = requiredParameterMasks[position];
+    if (requiredMask == 0)
+    {
+      return true;
+    }
+
+    if (!context.presentParametersComputed)
+    {
+      context.presentParameters = parameterIndex.getPresentMask(parameters);
+      context.presentParametersComputed = true;
+    }
+    return (requiredMask & context.presentParameters) == requiredMask;
+  }
+
+  private void insert(int routePosition, List<CriterionForPathSegment> pathCriteria)
+  {
+    TrieNode node = root;
+    for (CriterionForPathSegment criterion : pathCriteria)
+    {
+      switch (criterion.type)
+      {
+        case FIXED:
+          String key = caseInsensitive ? foldCase(criterion.value) : criterion.value;
+          TrieNode fixedChild = node.fixedChildren.get(key);
+          if (fixedChild == null)
+          {
+            fixedChild = new TrieNode();
+            node.fixedChildren.put(key, fixedChild);
+          }
+          node = fixedChild;
+          break;
+
+        case PATTERN:
+          node = node.getPatternEdge(criterion.pattern).child;
+          break;
+
+        case MULTI:
+        default:
+          node.multiRoutes = append(node.multiRoutes, routePosition);
+          return;
+      }
+    }
+
+    node.terminalRoutes = append(node.terminalRoutes, routePosition);
+  }
+
+  private void collect(TrieNode node, RequestPath path, int depth, MatchContext context)
+  {
+    Candidates candidates = context.candidates;
+    candidates.addAll(node.multiRoutes);
+
+    if (depth == path.size())
+    {
+      candidates.addAll(node.terminalRoutes);
+    }
+    else
+    {
+      if (!node.fixedChildren.isEmpty())
+      {
+        String segment = path.get(depth);
+        TrieNode fixedChild = node.fixedChildren.get(caseInsensitive ? foldCase(segment) : segment);
+        if (fixedChild != null)
+        {
+          collect(fixedChild, path, depth + 1, context);
+        }
+      }
+
+      if (!node.patternEdges.isEmpty())
+      {
+        String segment = path.get(depth);
+        for (int i = 0; i < node.patternEdges.size(); i++)
+        {
+          PatternEdge patternEdge = node.patternEdges.get(i);
+          if (patternEdge.matches(segment, context))
+          {
+            collect(patternEdge.child, path, depth + 1, context);
+          }
+        }
+      }
+    }
+  }
+
+  private String fixedPathKey(List<CriterionForPathSegment> pathCriteria)
+  {
+    StringBuilder key = new StringBuilder();
+    for (CriterionForPathSegment criterion : pathCriteria)
+    {
+      key.append('/').append(criterion.value);
+    }
+    return caseInsensitive ? foldCase(key.toString()) : key.toString();
+  }
+
+  static int spread(int hash)
+  {
+    return hash ^ (hash >>> 16);
+  }
+
+  static int[] append(int[] routes, int route)
+  {
+    int[] appended = Arrays.copyOf(routes, routes.length + 1);
+    appended[routes.length] = route;
+    return appended;
+  }
+
+  static class TrieNode
+  {
+    final Map<String, TrieNode> fixedChildren = new HashMap<String, TrieNode>();
+
+    final List<PatternEdge> patternEdges = new ArrayList<PatternEdge>();
+
+    /*
+     * Routes whose path criteria end at this node.
+     */
+    int[] terminalRoutes = NO_ROUTES;
+
+    /*
+     * Routes with a MULTI path criterion at this depth. Any request path that reaches this node is a candidate.
+     */
+    int[] multiRoutes = NO_ROUTES;
+
+    PatternEdge getPatternEdge(Pattern pattern)
+    {
+      for (PatternEdge patternEdge : patternEdges)
+      {
+        if (patternEdge.isFor(pattern))
+        {
+          return patternEdge;
+        }
+      }
+
+      PatternEdge patternEdge = new PatternEdge(pattern);
+      patternEdges.add(patternEdge);
+      return patternEdge;
+    }
+  }
+
+  /**
+   * Edge to the routes that share the same pattern at a path position. Before the regular expression is run the segment is
+   * checked against the literal prefix and suffix of the pattern (if it has any) so most non-matching segments are rejected
+   * without touching the regex engine.
+   */
+  static class PatternEdge
+  {
+    final Pattern pattern;
+
+    final TrieNode child = new TrieNode();
+
+    /*
+     * Used in place of the pattern if the pattern is one of the typed {} patterns.
+     */
+    final TypedValueScanner scanner;
+
+    final String literalPrefix;
+
+    final String literalSuffix;
+
+    PatternEdge(Pattern pattern)
+    {
+      this.pattern = pattern;
+
+      String regex = pattern.pattern();
+      scanner = TypedValueScanner.forPattern(pattern);
+
+      if ((scanner == null) && hasPrefilter(pattern))
+      {
+        literalPrefix = getLiteralPrefix(regex);
+        literalSuffix = literalPrefix.length() == regex.length() ? "" : getLiteralSuffix(regex);
+      }
+      else
+      {
+        literalPrefix = literalSuffix = "";
+      }
+    }
+
+    boolean isFor(Pattern pattern)
+    {
+      return (this.pattern == pattern) || (this.pattern.pattern().equals(pattern.pattern()) && (this.pattern.flags() == pattern.flags()));
+    }
+
+    boolean matches(String segment, MatchContext context)
+    {
+      if (scanner != null)
+      {
+        return scanner.scan(segment, null, null, 0);
+      }
+      else if (!segment.startsWith(literalPrefix) || !segment.endsWith(literalSuffix) || (segment.length() < (literalPrefix.length() + literalSuffix.length())))
+      {
+        return false;
+      }
+      else
+      {
+        return context.matcher(pattern, segment).matches();
+      }
+    }
+
+    /*
+     * Alternation, inline flags and case insensitive matching can all make the leading or trailing literal characters
+     * optional so no prefilter is taken from these patterns.
+     */
+    static boolean hasPrefilter(Pattern pattern)
+    {
+      String regex = pattern.pattern();
+      return ((pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.LITERAL | Pattern.COMMENTS | Pattern.CANON_EQ)) == 0) && (regex.indexOf('|') == -1) && !regex.contains("(?") && !regex.contains("\\Q");
+    }
+
+    static String getLiteralPrefix(String regex)
+    {
+      int end = 0;
+      while ((end < regex.length()) && isLiteral(regex.charAt(end)) && ((end + 1 == regex.length()) || !isQuantifier(regex.charAt(end + 1))))
+      {
+        ++end;
+      }
+      return regex.substring(0, end);
+    }
+
+    static String getLiteralSuffix(String regex)
+    {
+      int start = regex.length();
+      while ((start > 0) && isLiteral(regex.charAt(start - 1)))
+      {
+        --start;
+      }
+
+      /*
+       * The literal characters are part of an escape sequence (ex. \d or \x41).
+       */
+      if ((start > 0) && (regex.charAt(start - 1) == '\\'))
+      {
+        return "";
+      }
+      return regex.substring(start);
+    }
+
+    static boolean isLiteral(char c)
+    {
+      return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '-') || (c == '_') || (c == '~') || (c == '@') || (c == ',') || (c == ';') || (c == '=') || (c == '%');
+    }
+
+    static boolean isQuantifier(char c)
+    {
+      return (c == '?') || (c == '*') || (c == '+') || (c == '{');
+    }
+  }
+
+  /**
+   * Growable buffer of candidate route positions.
+   */
+  static class Candidates
+  {
+    int[] routes = new int[16];
+
+    int size;
+
+    void addAll(int[] positions)
+    {
+      if (positions.length > 0)
+      {
+        if ((size + positions.length) > routes.length)
+        {
+          routes = Arrays.copyOf(routes, Math.max(routes.length * 2, size + positions.length));
+        }
+        System.arraycopy(positions, 0, routes, size, positions.length);
+        size += positions.length;
+      }
+    }
+  }
+}
@@ -15,13 +15,15 @@
  */
 package org.baswell.routes;
 
+import java.util.List;
+
 /**
  * By default the Routes engine will sequential check each route method until a match is found. With lots of route methods, this can potentially
  * become a performance bottle neck. If a cache implementation is provided, the Routes engine will first check the cache for a hit before running
  * the sequential check.
  *
- *
  * @see org.baswell.routes.RoutesConfiguration#routesCache
+ * @see org.baswell.routes.RoutesCacheKey
  */
 public interface RoutesCache
 {
@@ -47,4 +49,32 @@ public interface RoutesCache
    * @return The cached route instance or {@code null} on a cache miss.
    */
   Object get(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters);
+
+  /**
+   * <p>
+   * Called each time the routes of the routing table change (ex. a build, {@link RoutingTable#add(Object...)}, a development mode
+   * reload or {@link RoutingTable#shutdown()}). Routes cached before this call came from an earlier generation of the routing
+   * table and should no longer be returned by {@code get}. Implementations should remember the generation each route was put
+   * under and ignore (and lazily evict) routes from earlier generations instead of clearing the whole cache.
+   * </p>
+   *
+   * <p>
+   * The names of the request parameters that any route is matched on are also given. Only the values of these parameters can change
+   * which route a request matches so these are the only parameters that need to be part of a cache key (see {@link RoutesCacheKey}).
+   * </p>
+   *
+   * @param generation The new generation of the routing table. Increases with each call.
+   * @param routingParameterNames The parameter names in sorted order.
+   */
+  default void routingTableBuilt(long generation, List<String> routingParameterNames)
+  {}
+
+  /**
+   * @return The statistics this cache keeps or null if it doesn't keep any.
+   * @see org.baswell.routes.RoutingStatistics#getCacheStatistics()
+   */
+  default RoutesCacheStatistics getStatistics()
+  {
+    return null;
+  }
 }
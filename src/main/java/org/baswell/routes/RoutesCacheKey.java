@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Cache key for {@link RoutesCache} implementations made up of the HTTP method, the resolved {@link MediaType} (the only part of
+ * the requested media type routes are matched on), the request path segments and the values of the request parameters routes are
+ * matched on (other parameters such as paging or tracking parameters are left out so they don't create separate entries). Parameter
+ * values are taken as they were received. Default parameters and any other changes made while the route is processed are not part
+ * of the key so a key built after the route method has been invoked still equals the probe of the next identical request. The hash code
+ * is computed once from the method ordinal, media type ordinal and the hash codes of the path segments and keys are compared
+ * structurally. Path segments are hashed and compared in place in the request URI so neither building nor probing a key copies
+ * any strings.
+ * </p>
+ *
+ * <p>
+ * Lookups should use {@link #probe(HttpMethod, RequestedMediaType, RequestPath, RequestParameters, List)} which resets and returns a per thread
+ * key instead of allocating a new one. A probe key must never be stored in a cache, use the constructor for the key given to
+ * {@code Map.put}. Routes cached before the last call to {@link RoutesCache#routingTableBuilt(long, java.util.List)} were matched
+ * on an earlier generation of the routes and must not be returned.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * public void routingTableBuilt(long generation, List<String> routingParameterNames)
+ * {
+ *   this.generation = generation;
+ *   this.routingParameterNames = routingParameterNames;
+ * }
+ *
+ * public Object get(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
+ * {
+ *   CachedRoute cachedRoute = cache.get(RoutesCacheKey.probe(method, requestedMediaType, path, parameters, routingParameterNames));
+ *   return ((cachedRoute == null) || (cachedRoute.generation != generation)) ? null : cachedRoute.routeNode;
+ * }
+ *
+ * public void put(Object routeNode, HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
+ * {
+ *   cache.put(new RoutesCacheKey(method, requestedMediaType, path, parameters, routingParameterNames), new CachedRoute(routeNode, generation));
+ * }
+ * }
+ * </pre>
+ *
+ * @see org.baswell.routes.RoutesCache
+ */
+public final class RoutesCacheKey
+{
+  private HttpMethod method;
+
+  private MediaType mediaType;
+
+  private RequestPath path;
+
+  private List<String> parameterNames = Collections.emptyList();
+
+  /*
+   * The live request parameters of a probe key.
+   */
+  private RequestParameters parameters;
+
+  /*
+   * The values of the parameterNames taken from the request parameters (by name position) for keys stored in a cache.
+   */
+  private String[][] parameterValues;
+
+  private int hashCode;
+
+  /*
+   * Per thread probe key (see MatchContext).
+   */
+  RoutesCacheKey()
+  {}
+
+  /**
+   * @param method The HTTP method.
+   * @param requestedMediaType The requested media type.
+   * @param path The HTTP path.
+   * @param parameters The HTTP parameters.
+   * @param parameterNames The names of the parameters that are part of the key (see {@link RoutesCache#routingTableBuilt(long, java.util.List)}).
+   */
+  public RoutesCacheKey(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, List<String> parameterNames)
+  {
+    set(method, requestedMediaType, path, parameters, parameterNames);
+
+    if (!parameterNames.isEmpty())
+    {
+      parameterValues = new String[parameterNames.size()][];
+      for (int i = 0; i < parameterValues.length; i++)
+      {
+        parameterValues[i] = parameters == null ? RequestParameters.NO_VALUES : parameters.getReceivedValuesArray(parameterNames.get(i));
+      }
+    }
+    this.parameters = null;
+  }
+
+  /**
+   * @param method The HTTP method.
+   * @param requestedMediaType The requested media type.
+   * @param path The HTTP path.
+   * @param parameters The HTTP parameters.
+   * @param parameterNames The names of the parameters that are part of the key (see {@link RoutesCache#routingTableBuilt(long, java.util.List)}).
+   * @return The key of the current thread reset to the given request. Only valid until the next call from the same thread.
+   */
+  public static RoutesCacheKey probe(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, List<String> parameterNames)
+  {
+    RoutesCacheKey probe = MatchContext.get().cacheKeyProbe;
+    probe.set(method, requestedMediaType, path, parameters, parameterNames);
+    return probe;
+  }
+
+  private void set(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters, List<String> parameterNames)
+  {
+    this.method = method;
+    this.mediaType = requestedMediaType == null ? null : requestedMediaType.mediaType;
+    this.path = path;
+    this.parameters = parameters;
+    this.parameterNames = parameterNames;
+
+    int hash = method == null ? 0 : method.ordinal() + 1;
+    hash = (31 * hash) + (mediaType == null ? 0 : mediaType.ordinal() + 1);
+    for (int i = 0; i < path.size(); i++)
+    {
+      hash = (31 * hash) + path.segmentHashCode(i);
+    }
+
+    for (int i = 0; i < parameterNames.size(); i++)
+    {
+      String[] values = getParameterValues(i);
+      hash = (31 * hash) + values.length;
+      for (int j = 0; j < values.length; j++)
+      {
+        hash = (31 * hash) + values[j].hashCode();
+      }
+    }
+    hashCode = hash;
+  }
+
+  private String[] getParameterValues(int index)
+  {
+    if (parameterValues != null)
+    {
+      return parameterValues[index];
+    }
+    else if (parameters != null)
+    {
+      return parameters.getReceivedValuesArray(parameterNames.get(index));
+    }
+    else
+    {
+      return RequestParameters.NO_VALUES;
+    }
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object object)
+  {
+    if (object == this)
+    {
+      return true;
+    }
+    else if (!(object instanceof RoutesCacheKey))
+    {
+      return false;
+    }
+
+    RoutesCacheKey key = (RoutesCacheKey)object;
+    if ((key.hashCode != hashCode) || (key.method != method) || (key.mediaType != mediaType) || (key.path.size() != path.size()))
+    {
+      return false;
+    }
+
+    for (int i = 0; i < path.size(); i++)
+    {
+      if (!path.segmentEquals(i, key.path, i))
+      {
+        return false;
+      }
+    }
+
+    if ((key.parameterNames != parameterNames) && !key.parameterNames.equals(parameterNames))
+    {
+      return false;
+    }
+
+    for (int i = 0; i < parameterNames.size(); i++)
+    {
+      if (!Arrays.equals(key.getParameterValues(i), getParameterValues(i)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder(String.valueOf(method)).append(':').append(mediaType == null ? "*/*" : mediaType.mimeType).append(':').append(path);
+    for (int i = 0; i < parameterNames.size(); i++)
+    {
+      builder.append(i == 0 ? ':' : '&').append(parameterNames.get(i)).append('=').append(Arrays.toString(getParameterValues(i)));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters a {@link RoutesCache} implementation keeps so the cache can be sized from real traffic. All counters are {@link LongAdder}s
+ * so recording from request threads does not contend.
+ *
+ * @see org.baswell.routes.RoutesCache#getStatistics()
+ */
+public class RoutesCacheStatistics
+{
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private final LongAdder entries = new LongAdder();
+
+  private final LongAdder purges = new LongAdder();
+
+  private final LongAdder purgeNanos = new LongAdder();
+
+  public void recordHit()
+  {
+    hits.increment();
+  }
+
+  public void recordMiss()
+  {
+    misses.increment();
+  }
+
+  /**
+   * @param evicted The number of entries evicted to keep the cache within its size.
+   */
+  public void recordEvictions(int evicted)
+  {
+    evictions.add(evicted);
+  }
+
+  /**
+   * @param added The change in the number of cached entries (negative when entries are removed).
+   */
+  public void recordEntries(int added)
+  {
+    entries.add(added);
+  }
+
+  /**
+   * @param nanos How long a purge (or eviction maintenance) run took.
+   */
+  public void recordPurge(long nanos)
+  {
+    purges.increment();
+    purgeNanos.add(nanos);
+  }
+
+  public long getHitCount()
+  {
+    return hits.sum();
+  }
+
+  public long getMissCount()
+  {
+    return misses.sum();
+  }
+
+  /**
+   * @return The ratio of hits to lookups or 0 if there have been no lookups.
+   */
+  public double getHitRate()
+  {
+    long hitCount = hits.sum();
+    long lookups = hitCount + misses.sum();
+    return lookups == 0 ? 0 : (double)hitCount / lookups;
+  }
+
+  public long getEvictionCount()
+  {
+    return evictions.sum();
+  }
+
+  public long getEntryCount()
+  {
+    return entries.sum();
+  }
+
+  public long getPurgeCount()
+  {
+    return purges.sum();
+  }
+
+  public long getTotalPurgeNanos()
+  {
+    return purgeNanos.sum();
+  }
+}
@@ -28,21 +28,60 @@ import static org.baswell.routes.RoutesMethods.typesToPatterns;
 public class RoutesConfiguration
 {
   /**
-   * If true the {@link org.baswell.routes.RoutingTable} will spawn a thread that rebuilds the routing table every
-   * {@link #developmentReloadCycleSeconds}.
+   * If true the {@link org.baswell.routes.RoutingTable} will spawn a thread that watches the class files of the route
+   * classes and reloads the routes of any class that changes. Only the changed route classes are recompiled and requests
+   * are served from the previous routes while this happens.
    *
    * Default value: {@code false}
    */
   public boolean developmentMode;
 
   /**
-   * The number of seconds between development mode reloads of the {@link org.baswell.routes.RoutingTable}. If {@link #developmentMode}
-   * is false this property is not used.
+   * The maximum number of seconds between development mode checks for changed route classes. Class files in directories
+   * that can be watched are picked up as soon as they are written. If {@link #developmentMode} is false this property is
+   * not used.
    *
    * Default value: 5
    */
   public int developmentReloadCycleSeconds = 5;
 
+  /**
+   * If greater than zero the {@link org.baswell.routes.RoutingTable} will spawn a thread that reorders the route search every
+   * this many seconds so the routes that match the most requests are checked first. Routes are only reordered when it can't
+   * change which route matches a request.
+   *
+   * Default value: 0
+   *
+   * @see org.baswell.routes.RoutingTable#reorderRoutes()
+   */
+  public int routeReorderSeconds;
+
+  /**
+   * The maximum number of request paths (per HTTP method) remembered as matching no route. Requests for these paths (ex. static
+   * resources when the {@link org.baswell.routes.RoutesFilter} is used) are passed on without searching the routes again. The
+   * remembered paths are forgotten whenever the routes change. Set to 0 to disable.
+   *
+   * Default value: 1024
+   */
+  public int negativeLookupCacheSize = 1024;
+
+  /**
+   * If set the {@link org.baswell.routes.RoutingStatistics} of the {@link org.baswell.routes.RoutingTable} are registered with
+   * the platform MBean server under this JMX object name (ex. <code>org.baswell.routes:type=RoutingStatistics</code>) when the
+   * routing table is first built.
+   *
+   * Default value: <status>null</status>
+   */
+  public String statisticsObjectName;
+
+  /**
+   * Should the time each route lookup takes be recorded in the {@link org.baswell.routes.RoutingStatistics}? The lookup counts
+   * are always recorded.
+   *
+   * Default value: <status>false</status>
+   */
+  public boolean timeLookups;
+
   /**
    * The global path prepended to all route paths. For example if you want your route objects to process request that
    * start with "/api" set this variable to "/api" and then all route class paths will get prepended with this value.
@@ -94,16 +94,7 @@ public class RoutesEngine
     assert servletRequest != null;
     assert servletResponse != null;
 
-    if (!routingTable.built)
-    {
-      synchronized (this)
-      {
-        if (!routingTable.built)
-        {
-          routingTable.build();
-        }
-      }
-    }
+    routingTable.buildIfNecessary();
 
     RequestPath requestPath = new RequestPath(servletRequest);
     RequestParameters requestParameters = new RequestParameters(servletRequest);
@@ -112,16 +103,33 @@ public class RoutesEngine
     RequestContent requestContent = null;
 
 
+    RoutesCache routesCache = routingTable.routesConfiguration.routesCache;
     MatchedRoute matchedRoute = null;
+    boolean cacheMatchedRoute = false;
 
-    if (routingTable.routesConfiguration.routesCache != null)
+    if (routesCache != null)
     {
-      matchedRoute = (MatchedRoute) routingTable.routesConfiguration.routesCache.get(httpMethod, requestedMediaType, requestPath, requestParameters);
+      matchedRoute = (MatchedRoute) routesCache.get(httpMethod, requestedMediaType, requestPath, requestParameters);
+      if ((matchedRoute != null) && (matchedRoute.generation != routingTable.getSnapshot().generation))
+      {
+        /*
+         * Cached by a request that was matched on the routes before the last build. The put below replaces it.
+         */
+        matchedRoute = null;
+      }
+      else if (matchedRoute != null)
+      {
+        /*
+         * Counted here since the routing table never sees this request (see RoutingTable#reorderRoutes).
+         */
+        matchedRoute.routeNode.hits.increment();
+      }
     }
 
     if (matchedRoute == null)
     {
       matchedRoute = routingTable.find(requestPath, requestParameters, httpMethod, requestedMediaType);
+      cacheMatchedRoute = (routesCache != null) && (matchedRoute != null);
     }
 
     if (matchedRoute != null)
@@ -134,11 +142,11 @@ public class RoutesEngine
 
       try
       {
-        pipeline.invoke(matchedRoute.routeNode, servletRequest, servletResponse, httpMethod, requestedMediaType, requestPath, requestParameters, requestContent, matchedRoute.pathMatchers, matchedRoute.parameterMatchers);
+        pipeline.invoke(matchedRoute, servletRequest, servletResponse, httpMethod, requestedMediaType, requestPath, requestParameters, requestContent);
 
-        if (routingTable.routesConfiguration.routesCache != null)
+        if (cacheMatchedRoute)
         {
-          routingTable.routesConfiguration.routesCache.put(matchedRoute, httpMethod, requestedMediaType, requestPath, requestParameters);
+          routesCache.put(matchedRoute, httpMethod, requestedMediaType, requestPath, requestParameters);
         }
 
         return true;
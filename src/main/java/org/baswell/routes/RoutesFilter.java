@@ -18,7 +18,6 @@ package org.baswell.routes;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -88,46 +87,17 @@ public class RoutesFilter implements Filter
 {
   private volatile MethodPipeline pipeline;
   
-  private List<Pattern> onlyPatterns;
+  private PathPatterns onlyPatterns;
   
-  private List<Pattern> exceptPatterns;
+  private PathPatterns exceptPatterns;
 
   private volatile RoutesEngine routesEngine;
   
   @Override
   public void init(FilterConfig filterConfig) throws ServletException
   {
-    String onlyInitParam = filterConfig.getInitParameter("ONLY");
-    if (onlyInitParam != null)
-    {
-      List<Pattern> onlyPatterns = new ArrayList<Pattern>();
-      String[] onlyInitParams = onlyInitParam.split(",");
-      for (String pattern : onlyInitParams)
-      {
-        if (!pattern.trim().isEmpty())
-        {
-          onlyPatterns.add(Pattern.compile(pattern.trim()));
-        }
-      }
-
-      if (!onlyPatterns.isEmpty()) this.onlyPatterns = onlyPatterns;
-    }
-
-    String exceptInitParam = filterConfig.getInitParameter("EXCEPT");
-    if (exceptInitParam != null)
-    {
-      List<Pattern> exceptPatterns = new ArrayList<Pattern>();
-      String[] exceptInitParams = exceptInitParam.split(",");
-      for (String pattern : exceptInitParams)
-      {
-        if (!pattern.trim().isEmpty())
-        {
-          exceptPatterns.add(Pattern.compile(pattern.trim()));
-        }
-      }
-
-      if (!exceptPatterns.isEmpty()) this.exceptPatterns = exceptPatterns;
-    }
+    onlyPatterns = parsePatterns(filterConfig.getInitParameter("ONLY"));
+    exceptPatterns = parsePatterns(filterConfig.getInitParameter("EXCEPT"));
   }
 
   @Override
@@ -138,37 +108,19 @@ public class RoutesFilter implements Filter
 
     if (onlyPatterns != null || exceptPatterns != null)
     {
-      String requestPath = servletRequest.getRequestURI().substring(servletRequest.getContextPath().length());
+      String requestURI = servletRequest.getRequestURI();
+      int pathStart = servletRequest.getContextPath().length();
 
-      if (onlyPatterns != null)
+      if ((onlyPatterns != null) && !onlyPatterns.matches(requestURI, pathStart))
       {
-        boolean matchFound = false;
-        for (Pattern onlyPattern : onlyPatterns)
-        {
-          if (onlyPattern.matcher(requestPath).matches())
-          {
-            matchFound = true;
-            break;
-          }
-        }
-
-        if (!matchFound)
-        {
-          chain.doFilter(servletRequest, servletResponse);
-          return;
-        }
+        chain.doFilter(servletRequest, servletResponse);
+        return;
       }
 
-      if (exceptPatterns != null)
+      if ((exceptPatterns != null) && exceptPatterns.matches(requestURI, pathStart))
       {
-        for (Pattern exceptPattern : exceptPatterns)
-        {
-          if (exceptPattern.matcher(requestPath).matches())
-          {
-            chain.doFilter(servletRequest, servletResponse);
-            return;
-          }
-        }
+        chain.doFilter(servletRequest, servletResponse);
+        return;
       }
     }
 
@@ -194,4 +146,26 @@ public class RoutesFilter implements Filter
   @Override
   public void destroy()
   {}
+
+  /*
+   * @return The comma delimited patterns of the given init parameter or null if there are none.
+   */
+  static PathPatterns parsePatterns(String initParam)
+  {
+    if (initParam == null)
+    {
+      return null;
+    }
+
+    List<String> patterns = new ArrayList<String>();
+    for (String pattern : initParam.split(","))
+    {
+      if (!pattern.trim().isEmpty())
+      {
+        patterns.add(pattern.trim());
+      }
+    }
+
+    return patterns.isEmpty() ? null : new PathPatterns(patterns);
+  }
 }
@@ -58,6 +58,33 @@ class RoutesMethods
     return ((string == null) || string.toString().trim().isEmpty());
   }
 
+  /**
+   * Lower cases the given string the same way {@link String#equalsIgnoreCase(String)} compares characters so two strings
+   * that are equal ignoring case always produce the same key.
+   */
+  static String foldCase(String string)
+  {
+    for (int i = 0; i < string.length(); i++)
+    {
+      char c = string.charAt(i);
+      if (foldCase(c) != c)
+      {
+        char[] folded = string.toCharArray();
+        for (int j = i; j < folded.length; j++)
+        {
+          folded[j] = foldCase(folded[j]);
+        }
+        return new String(folded);
+      }
+    }
+    return string;
+  }
+
+  static char foldCase(char c)
+  {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
   static Class typeToClass(Type type)
   {
     if (type instanceof Class)
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Optional annotation processor that generates a {@link org.baswell.routes.RouteMethodInvoker} for each class that uses
+ * the {@link Routes}, {@link Route}, {@link BeforeRoute} or {@link AfterRoute} annotations. The generated invoker calls the
+ * public methods of the route class directly so route methods are not called through reflection once the
+ * {@link org.baswell.routes.RoutingTable} is built.
+ * </p>
+ *
+ * <p>
+ * The processor is not registered automatically. To use it add it to the compiler's processors, for example
+ * {@code javac -processor org.baswell.routes.RoutesProcessor}. Classes compiled without the processor (or that can't be
+ * accessed from their own package, such as private nested classes) are called through reflection as before.
+ * </p>
+ */
+@SupportedAnnotationTypes({"org.baswell.routes.Routes", "org.baswell.routes.Route", "org.baswell.routes.BeforeRoute", "org.baswell.routes.AfterRoute"})
+public class RoutesProcessor extends AbstractProcessor
+{
+  private final Set<String> generatedInvokers = new HashSet<String>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment)
+  {
+    Set<TypeElement> routesClasses = new LinkedHashSet<TypeElement>();
+    for (TypeElement annotation : annotations)
+    {
+      for (Element element : roundEnvironment.getElementsAnnotatedWith(annotation))
+      {
+        Element classElement = element.getKind() == ElementKind.METHOD ? element.getEnclosingElement() : element;
+        if (classElement.getKind() == ElementKind.CLASS)
+        {
+          routesClasses.add((TypeElement) classElement);
+        }
+      }
+    }
+
+    for (TypeElement routesClass : routesClasses)
+    {
+      String invokerName = processingEnv.getElementUtils().getBinaryName(routesClass) + DirectMethod.INVOKER_SUFFIX;
+      if (isAccessible(routesClass, processingEnv.getElementUtils().getPackageOf(routesClass)) && generatedInvokers.add(invokerName))
+      {
+        try
+        {
+          writeInvoker(routesClass, invokerName);
+        }
+        catch (IOException e)
+        {
+          processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write route invoker: " + invokerName + " (" + e.getMessage() + ")", routesClass);
+        }
+      }
+    }
+
+    return false;
+  }
+
+  void writeInvoker(TypeElement routesClass, String invokerName) throws IOException
+  {
+    PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(routesClass);
+    String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    String invokerSimpleName = packageName.isEmpty() ? invokerName : invokerName.substring(packageName.length() + 1);
+    String routesClassName = routesClass.getQualifiedName().toString();
+
+    List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+    List<String> signatures = new ArrayList<String>();
+    for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(routesClass)))
+    {
+      Set<Modifier> modifiers = method.getModifiers();
+      TypeElement declaringClass = (TypeElement) method.getEnclosingElement();
+      if (modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.STATIC) && !declaringClass.getQualifiedName().contentEquals("java.lang.Object") && hasAccessibleParameters(method, packageElement))
+      {
+        String signature = getSignature(method);
+        if (!signatures.contains(signature))
+        {
+          methods.add(method);
+          signatures.add(signature);
+        }
+      }
+    }
+
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty())
+    {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("/*\n * Generated by ").append(RoutesProcessor.class.getName()).append(" for ").append(routesClassName).append(". Do not edit.\n */\n");
+    source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+    source.append("public final class ").append(invokerSimpleName).append(" implements ").append(RouteMethodInvoker.class.getName()).append("\n{\n");
+
+    source.append("  private static final String[] METHOD_SIGNATURES = {");
+    for (int i = 0; i < signatures.size(); i++)
+    {
+      source.append(i == 0 ? "" : ", ").append('"').append(signatures.get(i)).append('"');
+    }
+    source.append("};\n\n");
+
+    source.append("  public String[] getMethodSignatures()\n  {\n    return METHOD_SIGNATURES.clone();\n  }\n\n");
+
+    source.append("  public Object invoke(Object routeInstance, int methodIndex, Object[] parameters) throws java.lang.reflect.InvocationTargetException\n  {\n");
+    source.append("    ").append(routesClassName).append(" instance = (").append(routesClassName).append(") routeInstance;\n");
+    source.append("    switch (methodIndex)\n    {\n");
+    for (int i = 0; i < methods.size(); i++)
+    {
+      ExecutableElement method = methods.get(i);
+      List<? extends VariableElement> parameters = method.getParameters();
+
+      source.append("      case ").append(i).append(":\n      {\n");
+      StringBuilder arguments = new StringBuilder();
+      for (int j = 0; j < parameters.size(); j++)
+      {
+        TypeMirror parameterType = parameters.get(j).asType();
+        String typeName = getTypeName(parameterType);
+        String castName = parameterType.getKind().isPrimitive() ? getBoxedTypeName(parameterType.getKind()) : typeName;
+        source.append("        ").append(typeName).append(" p").append(j).append(" = (").append(castName).append(") parameters[").append(j).append("];\n");
+        arguments.append(j == 0 ? "" : ", ").append('p').append(j);
+      }
+
+      source.append("        try\n        {\n");
+      if (method.getReturnType().getKind() == TypeKind.VOID)
+      {
+        source.append("          instance.").append(method.getSimpleName()).append('(').append(arguments).append(");\n");
+        source.append("          return null;\n");
+      }
+      else
+      {
+        source.append("          return instance.").append(method.getSimpleName()).append('(').append(arguments).append(");\n");
+      }
+      source.append("        }\n        catch (Throwable e)\n        {\n          throw new java.lang.reflect.InvocationTargetException(e);\n        }\n      }\n");
+    }
+    source.append("      default:\n        throw new IllegalArgumentException(\"Invalid method index: \" + methodIndex);\n");
+    source.append("    }\n  }\n}\n");
+
+    Writer writer = processingEnv.getFiler().createSourceFile(invokerName, routesClass).openWriter();
+    try
+    {
+      writer.write(source.toString());
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+
+  /*
+   * Must match DirectMethod.getSignature.
+   */
+  String getSignature(ExecutableElement method)
+  {
+    StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+    List<? extends VariableElement> parameters = method.getParameters();
+    for (int i = 0; i < parameters.size(); i++)
+    {
+      signature.append(i == 0 ? "" : ",").append(getTypeName(parameters.get(i).asType()));
+    }
+    return signature.append(')').toString();
+  }
+
+  /*
+   * The canonical name of the erasure of the given type.
+   */
+  String getTypeName(TypeMirror type)
+  {
+    if (type.getKind().isPrimitive())
+    {
+      return getPrimitiveTypeName(type.getKind());
+    }
+    else if (type.getKind() == TypeKind.ARRAY)
+    {
+      return getTypeName(((ArrayType) type).getComponentType()) + "[]";
+    }
+    else if (type.getKind() == TypeKind.DECLARED)
+    {
+      return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+    }
+    else
+    {
+      return getTypeName(processingEnv.getTypeUtils().erasure(type));
+    }
+  }
+
+  /*
+   * Mapped explicitly (not from the TypeKind name) so the keyword doesn't depend on the default locale.
+   */
+  static String getPrimitiveTypeName(TypeKind kind)
+  {
+    switch (kind)
+    {
+      case BOOLEAN:
+        return "boolean";
+      case BYTE:
+        return "byte";
+      case SHORT:
+        return "short";
+      case INT:
+        return "int";
+      case LONG:
+        return "long";
+      case CHAR:
+        return "char";
+      case FLOAT:
+        return "float";
+      case DOUBLE:
+      default:
+        return "double";
+    }
+  }
+
+  static String getBoxedTypeName(TypeKind kind)
+  {
+    switch (kind)
+    {
+      case BOOLEAN:
+        return "java.lang.Boolean";
+      case BYTE:
+        return "java.lang.Byte";
+      case SHORT:
+        return "java.lang.Short";
+      case INT:
+        return "java.lang.Integer";
+      case LONG:
+        return "java.lang.Long";
+      case CHAR:
+        return "java.lang.Character";
+      case FLOAT:
+        return "java.lang.Float";
+      case DOUBLE:
+      default:
+        return "java.lang.Double";
+    }
+  }
+
+  boolean hasAccessibleParameters(ExecutableElement method, PackageElement packageElement)
+  {
+    for (VariableElement parameter : method.getParameters())
+    {
+      TypeMirror type = processingEnv.getTypeUtils().erasure(parameter.asType());
+      while (type.getKind() == TypeKind.ARRAY)
+      {
+        type = ((ArrayType) type).getComponentType();
+      }
+
+      if ((type.getKind() == TypeKind.DECLARED) && !isAccessible((TypeElement) ((DeclaredType) type).asElement(), packageElement))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * The generated invoker lives in the same package as the route class so it can only use the types that are visible there.
+   */
+  boolean isAccessible(TypeElement type, PackageElement fromPackage)
+  {
+    boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).equals(fromPackage);
+    Element element = type;
+    while (element instanceof TypeElement)
+    {
+      TypeElement typeElement = (TypeElement) element;
+      Set<Modifier> modifiers = typeElement.getModifiers();
+      NestingKind nestingKind = typeElement.getNestingKind();
+      if (modifiers.contains(Modifier.PRIVATE) || (!samePackage && !modifiers.contains(Modifier.PUBLIC)) || ((nestingKind != NestingKind.TOP_LEVEL) && (nestingKind != NestingKind.MEMBER)))
+      {
+        return false;
+      }
+      element = typeElement.getEnclosingElement();
+    }
+    return true;
+  }
+}
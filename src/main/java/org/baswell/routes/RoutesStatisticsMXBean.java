@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+/**
+ * JMX view of the routing table and routes cache statistics.
+ *
+ * @see org.baswell.routes.RoutesConfiguration#statisticsObjectName
+ * @see org.baswell.routes.RoutingStatistics
+ */
+public interface RoutesStatisticsMXBean
+{
+  long getLookupCount();
+
+  long getMatchCount();
+
+  long getNegativeCacheHitCount();
+
+  long getTimedLookupCount();
+
+  long getTotalLookupNanos();
+
+  long[] getRoutesScannedHistogram();
+
+  long getCacheHitCount();
+
+  long getCacheMissCount();
+
+  double getCacheHitRate();
+
+  long getCacheEvictionCount();
+
+  long getCacheEntryCount();
+
+  long getCachePurgeCount();
+
+  long getCacheTotalPurgeNanos();
+}
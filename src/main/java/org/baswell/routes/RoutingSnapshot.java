@@ -0,0 +1,253 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An immutable view of the routing table as of one build. A new snapshot is published each time the routing table is
+ * (re)built so requests never see a partially built table and a request that started on one snapshot finishes on it.
+ */
+class RoutingSnapshot
+{
+  /*
+   * Increases with each snapshot published by a routing table.
+   */
+  final long version;
+
+  /*
+   * Increases each time the routes of a published snapshot change (reordering the search does not change the generation).
+   * Routes matched on an earlier generation must not be reused (see RoutesCache).
+   */
+  final long generation;
+
+  /*
+   * All route nodes in priority order.
+   */
+  final List<RouteNode> routeNodes;
+
+  /*
+   * The route nodes that can never match (mapped to the route node that shadows each one). These are left out of the search.
+   */
+  final Map<RouteNode, RouteNode> shadowedRouteNodes;
+
+  /*
+   * The route nodes searched (in the order searched). Routes are moved ahead of routes with fewer hits when they can't
+   * overlap so the first match is the same as it would be in priority order.
+   */
+  final List<RouteNode> searchOrder;
+
+  /*
+   * The sorted names of all parameters any route is matched on.
+   */
+  final List<String> routingParameterNames;
+
+  private final Map<HttpMethod, RouteTrie> routeTries;
+
+  private final ParameterIndex parameterIndex;
+
+  private final boolean caseInsensitive;
+
+  private final RoutingStatistics statistics;
+
+  /*
+   * Paths (by HTTP method) known to match no route. Empty if the negative lookup cache is disabled.
+   */
+  private final Map<HttpMethod, NegativeLookupCache> negativeLookupCaches;
+
+  /**
+   * @param version
+   * @param generation
+   * @param sortedRouteNodes The route nodes in priority order. The current hits of each route node are used to order the search.
+   * @param routesConfiguration
+   * @param statistics Where the lookups of this snapshot are recorded.
+   */
+  RoutingSnapshot(long version, long generation, List<RouteNode> sortedRouteNodes, RoutesConfiguration routesConfiguration, RoutingStatistics statistics)
+  {
+    this.version = version;
+    this.generation = generation;
+    this.statistics = statistics;
+    caseInsensitive = routesConfiguration.caseInsensitive;
+    routeNodes = Collections.unmodifiableList(new ArrayList<RouteNode>(sortedRouteNodes));
+    shadowedRouteNodes = Collections.unmodifiableMap(RouteAnalysis.findShadowed(routeNodes, caseInsensitive));
+
+    Set<String> parameterNames = new TreeSet<String>();
+    for (RouteNode routeNode : routeNodes)
+    {
+      if (routeNode.criteria.parameterCriteria != null)
+      {
+        for (CriterionForParameter parameterCriterion : routeNode.criteria.parameterCriteria)
+        {
+          parameterNames.add(parameterCriterion.name);
+        }
+      }
+    }
+    routingParameterNames = Collections.unmodifiableList(new ArrayList<String>(parameterNames));
+    parameterIndex = new ParameterIndex(routeNodes, caseInsensitive);
+
+    negativeLookupCaches = new EnumMap<HttpMethod, NegativeLookupCache>(HttpMethod.class);
+    if (routesConfiguration.negativeLookupCacheSize > 0)
+    {
+      for (HttpMethod httpMethod : HttpMethod.values())
+      {
+        negativeLookupCaches.put(httpMethod, new NegativeLookupCache(routesConfiguration.negativeLookupCacheSize));
+      }
+    }
+
+    searchOrder = orderSearch();
+    routeTries = buildRouteTries();
+  }
+
+  /**
+   * Reorders the search of the given snapshot by the current route hits. The routes haven't changed so the shadowed routes,
+   * parameter index and negative lookup caches of the given snapshot are reused and only the search order (and the tries
+   * built from it) are recomputed.
+   *
+   * @param version
+   * @param snapshot The snapshot to reorder.
+   */
+  RoutingSnapshot(long version, RoutingSnapshot snapshot)
+  {
+    this.version = version;
+    generation = snapshot.generation;
+    statistics = snapshot.statistics;
+    caseInsensitive = snapshot.caseInsensitive;
+    routeNodes = snapshot.routeNodes;
+    shadowedRouteNodes = snapshot.shadowedRouteNodes;
+    routingParameterNames = snapshot.routingParameterNames;
+    parameterIndex = snapshot.parameterIndex;
+    negativeLookupCaches = snapshot.negativeLookupCaches;
+
+    searchOrder = orderSearch();
+    routeTries = buildRouteTries();
+  }
+
+  private List<RouteNode> orderSearch()
+  {
+    List<RouteNode> searchedRouteNodes = new ArrayList<RouteNode>(routeNodes.size());
+    for (RouteNode routeNode : routeNodes)
+    {
+      if (!shadowedRouteNodes.containsKey(routeNode))
+      {
+        searchedRouteNodes.add(routeNode);
+      }
+    }
+
+    long[] hits = new long[searchedRouteNodes.size()];
+    for (int i = 0; i < hits.length; i++)
+    {
+      hits[i] = searchedRouteNodes.get(i).hits.sum();
+    }
+    return Collections.unmodifiableList(RouteAnalysis.reorderByHits(searchedRouteNodes, hits, caseInsensitive));
+  }
+
+  private Map<HttpMethod, RouteTrie> buildRouteTries()
+  {
+    Map<HttpMethod, RouteTrie> routeTries = new EnumMap<HttpMethod, RouteTrie>(HttpMethod.class);
+    for (HttpMethod httpMethod : HttpMethod.values())
+    {
+      List<RouteNode> methodRouteNodes = new ArrayList<RouteNode>();
+      for (RouteNode routeNode : searchOrder)
+      {
+        if (routeNode.criteria.respondsToMethods.contains(httpMethod))
+        {
+          methodRouteNodes.add(routeNode);
+        }
+      }
+      routeTries.put(httpMethod, new RouteTrie(methodRouteNodes, caseInsensitive, parameterIndex));
+    }
+    return routeTries;
+  }
+
+  MatchedRoute find(RequestPath path, RequestParameters parameters, HttpMethod httpMethod, RequestedMediaType requestedMediaType)
+  {
+    /*
+     * Each HTTP method has its own trie of only the routes that respond to it. The trie only returns the routes whose path
+     * criteria could match this path. Candidates are returned in search order so the first full match is the same route
+     * a scan of every route (in priority order) would have found.
+     */
+    RouteTrie routeTrie = httpMethod == null ? null : routeTries.get(httpMethod);
+    if (routeTrie == null)
+    {
+      return null;
+    }
+
+    NegativeLookupCache negativeLookupCache = negativeLookupCaches.get(httpMethod);
+    if ((negativeLookupCache != null) && negativeLookupCache.contains(path))
+    {
+      statistics.recordNegativeCacheHit();
+      return null;
+    }
+
+    MatchContext context = MatchContext.get();
+    context.presentParametersComputed = false;
+
+    int scanned = 0;
+    int[] fixedCandidates = routeTrie.findFixedCandidates(path);
+    for (int position : fixedCandidates)
+    {
+      RouteNode routeNode = routeTrie.routeNodes[position];
+      ++scanned;
+      if (routeTrie.hasRequiredParameters(position, parameters, context) && routeNode.criteria.matches(httpMethod, requestedMediaType, path, parameters, context))
+      {
+        routeNode.hits.increment();
+        statistics.recordLookup(scanned, true);
+        return new MatchedRoute(routeNode, generation, path, context);
+      }
+    }
+
+    RouteTrie.Candidates candidates = context.candidates;
+    routeTrie.findCandidates(path, context);
+
+    for (int i = 0; i < candidates.size; i++)
+    {
+      int position = candidates.routes[i];
+      RouteNode routeNode = routeTrie.routeNodes[position];
+      ++scanned;
+      if (routeTrie.hasRequiredParameters(position, parameters, context) && routeNode.criteria.matches(httpMethod, requestedMediaType, path, parameters, context))
+      {
+        routeNode.hits.increment();
+        statistics.recordLookup(scanned, true);
+        return new MatchedRoute(routeNode, generation, path, context);
+      }
+    }
+
+    statistics.recordLookup(scanned, false);
+
+    /*
+     * Only cache the miss if no route's path criteria match this path. Otherwise the same path might match with other
+     * parameters or a different requested media type.
+     */
+    if ((negativeLookupCache != null) && (fixedCandidates.length == 0))
+    {
+      for (int i = 0; i < candidates.size; i++)
+      {
+        if (routeTrie.routeNodes[candidates.routes[i]].criteria.matchesPath(path, context))
+        {
+          return null;
+        }
+      }
+      negativeLookupCache.add(path);
+    }
+    return null;
+  }
+}
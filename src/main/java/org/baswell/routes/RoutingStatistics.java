@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Counters for the route lookups of a {@link RoutingTable} along with the statistics of the configured {@link RoutesCache} (if it
+ * keeps any). Lookups are also counted by the number of routes whose criteria were checked before a match (or miss) was found. Bucket
+ * 0 holds lookups that checked no routes, bucket 1 one route, bucket 2 two routes and each following bucket twice as many routes as the
+ * one before (3-4, 5-8, ... 33-64). The last bucket holds everything over 64.
+ * </p>
+ *
+ * <p>
+ * Lookups are only timed when {@link RoutesConfiguration#timeLookups} is set. These statistics can be registered with JMX (see
+ * {@link RoutesConfiguration#statisticsObjectName}) and are served as JSON from the Routes meta path at <code>/stats</code>.
+ * </p>
+ *
+ * @see org.baswell.routes.RoutingTable#getStatistics()
+ */
+public class RoutingStatistics implements RoutesStatisticsMXBean
+{
+  static final int HISTOGRAM_BUCKETS = 9;
+
+  private final RoutesConfiguration routesConfiguration;
+
+  private final LongAdder lookups = new LongAdder();
+
+  private final LongAdder matches = new LongAdder();
+
+  private final LongAdder negativeCacheHits = new LongAdder();
+
+  private final LongAdder timedLookups = new LongAdder();
+
+  private final LongAdder lookupNanos = new LongAdder();
+
+  private final LongAdder[] routesScanned = new LongAdder[HISTOGRAM_BUCKETS];
+
+  RoutingStatistics(RoutesConfiguration routesConfiguration)
+  {
+    this.routesConfiguration = routesConfiguration;
+    for (int i = 0; i < routesScanned.length; i++)
+    {
+      routesScanned[i] = new LongAdder();
+    }
+  }
+
+  void recordLookup(int scanned, boolean matched)
+  {
+    lookups.increment();
+    if (matched)
+    {
+      matches.increment();
+    }
+    routesScanned[getBucket(scanned)].increment();
+  }
+
+  void recordNegativeCacheHit()
+  {
+    lookups.increment();
+    negativeCacheHits.increment();
+    routesScanned[0].increment();
+  }
+
+  void recordLookupTime(long nanos)
+  {
+    timedLookups.increment();
+    lookupNanos.add(nanos);
+  }
+
+  static int getBucket(int scanned)
+  {
+    return scanned <= 0 ? 0 : Math.min(HISTOGRAM_BUCKETS - 1, 1 + (32 - Integer.numberOfLeadingZeros(scanned - 1)));
+  }
+
+  @Override
+  public long getLookupCount()
+  {
+    return lookups.sum();
+  }
+
+  @Override
+  public long getMatchCount()
+  {
+    return matches.sum();
+  }
+
+  @Override
+  public long getNegativeCacheHitCount()
+  {
+    return negativeCacheHits.sum();
+  }
+
+  @Override
+  public long getTimedLookupCount()
+  {
+    return timedLookups.sum();
+  }
+
+  @Override
+  public long getTotalLookupNanos()
+  {
+    return lookupNanos.sum();
+  }
+
+  @Override
+  public long[] getRoutesScannedHistogram()
+  {
+    long[] histogram = new long[routesScanned.length];
+    for (int i = 0; i < histogram.length; i++)
+    {
+      histogram[i] = routesScanned[i].sum();
+    }
+    return histogram;
+  }
+
+  /**
+   * @return The statistics of the configured routes cache or null if there is no cache or the cache doesn't keep statistics.
+   */
+  public RoutesCacheStatistics getCacheStatistics()
+  {
+    RoutesCache routesCache = routesConfiguration.routesCache;
+    return routesCache == null ? null : routesCache.getStatistics();
+  }
+
+  @Override
+  public long getCacheHitCount()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getHitCount();
+  }
+
+  @Override
+  public long getCacheMissCount()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getMissCount();
+  }
+
+  @Override
+  public double getCacheHitRate()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getHitRate();
+  }
+
+  @Override
+  public long getCacheEvictionCount()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getEvictionCount();
+  }
+
+  @Override
+  public long getCacheEntryCount()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getEntryCount();
+  }
+
+  @Override
+  public long getCachePurgeCount()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getPurgeCount();
+  }
+
+  @Override
+  public long getCacheTotalPurgeNanos()
+  {
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    return cacheStatistics == null ? 0 : cacheStatistics.getTotalPurgeNanos();
+  }
+
+  String toJson()
+  {
+    StringBuilder json = new StringBuilder("{");
+    json.append("\"lookups\": ").append(getLookupCount());
+    json.append(", \"matches\": ").append(getMatchCount());
+    json.append(", \"negativeCacheHits\": ").append(getNegativeCacheHitCount());
+    json.append(", \"timedLookups\": ").append(getTimedLookupCount());
+    json.append(", \"totalLookupNanos\": ").append(getTotalLookupNanos());
+    json.append(", \"routesScannedHistogram\": [");
+    long[] histogram = getRoutesScannedHistogram();
+    for (int i = 0; i < histogram.length; i++)
+    {
+      json.append(i == 0 ? "" : ", ").append(histogram[i]);
+    }
+    json.append("]");
+
+    RoutesCacheStatistics cacheStatistics = getCacheStatistics();
+    if (cacheStatistics != null)
+    {
+      json.append(", \"cache\": {");
+      json.append("\"hits\": ").append(cacheStatistics.getHitCount());
+      json.append(", \"misses\": ").append(cacheStatistics.getMissCount());
+      json.append(", \"hitRate\": ").append(cacheStatistics.getHitRate());
+      json.append(", \"evictions\": ").append(cacheStatistics.getEvictionCount());
+      json.append(", \"entries\": ").append(cacheStatistics.getEntryCount());
+      json.append(", \"purges\": ").append(cacheStatistics.getPurgeCount());
+      json.append(", \"totalPurgeNanos\": ").append(cacheStatistics.getTotalPurgeNanos());
+      json.append("}");
+    }
+    return json.append("}").toString();
+  }
+}
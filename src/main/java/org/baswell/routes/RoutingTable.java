@@ -16,17 +16,26 @@
 package org.baswell.routes;
 
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.management.ObjectName;
 
 import static org.baswell.routes.ContentConversionType.*;
 import static org.baswell.routes.RoutesMethods.*;
@@ -68,11 +77,40 @@ public class RoutingTable
 
   volatile boolean built;
 
-  private List<Object> addedObjects = new ArrayList<Object>();
-  
-  private List<RouteNode> routeNodes;
+  /*
+   * In the order added. Route nodes of different objects with equal criteria are prioritized in this order.
+   */
+  private Set<Object> addedObjects = new LinkedHashSet<Object>();
+
+  /*
+   * The route nodes (in priority order) compiled from each added object by the last build. Objects added or removed after the
+   * build are merged into or dropped from the current snapshot without recompiling the other objects.
+   */
+  private Map<Object, List<RouteNode>> compiledRoutes = new HashMap<Object, List<RouteNode>>();
+
+  private int compiledObjects;
+
+  /*
+   * Requests read this once and use it for the entire lookup. Builds publish a new snapshot instead of modifying this one.
+   */
+  private volatile RoutingSnapshot snapshot;
+
+  private long snapshotVersion;
+
+  private long routesGeneration;
+
+  private final RoutingStatistics statistics;
 
-  private Thread developmentModeThread;
+  private ObjectName registeredStatisticsName;
+
+  private volatile Thread developmentModeThread;
+
+  private volatile Thread reorderThread;
+
+  /*
+   * Route hits (by route key) loaded from a previous run. Applied to routes as they are compiled.
+   */
+  private Map<String, Long> loadedRouteHits = new HashMap<String, Long>();
 
   /**
    * The default {@link org.baswell.routes.RoutesConfiguration} will be used.
@@ -85,6 +123,8 @@ public class RoutingTable
   public RoutingTable(RoutesConfiguration routesConfiguration)
   {
     this.routesConfiguration = routesConfiguration == null ? new RoutesConfiguration() : routesConfiguration;
+    statistics = new RoutingStatistics(this.routesConfiguration);
+    snapshot = new RoutingSnapshot(snapshotVersion, routesGeneration, new ArrayList<RouteNode>(), this.routesConfiguration, statistics);
     RoutingTable.theRoutingTable = this;
   }
 
@@ -120,9 +160,7 @@ public class RoutingTable
    */
   public synchronized RoutingTable register(Object... instancesOrClasses)
   {
-    built = false;
-    for (Object obj : instancesOrClasses) if (!addedObjects.contains(obj)) addedObjects.add(obj);
-    return this;
+    return add(instancesOrClasses);
   }
 
 
@@ -130,161 +168,140 @@ public class RoutingTable
    * Adds to the given objects to the routing table. Objects can be either the route class object or a route instance
    * object.
    *
+   * If the routing table has already been built only the routes of the given objects are compiled. They are merged into
+   * the live routing table without a rebuild and requests in progress are not blocked.
+   *
    * @param instancesOrClasses Route class or instance objects.
    * @return This RoutingTable
+   * @throws RoutesException If the routing table has been built and an added route is configured incorrectly. None of
+   * the given objects are added in this case.
    */
-  public synchronized RoutingTable add(Object... instancesOrClasses)
+  public synchronized RoutingTable add(Object... instancesOrClasses) throws RoutesException
   {
-    built = false;
-    for (Object obj : instancesOrClasses) if (!addedObjects.contains(obj)) addedObjects.add(obj);
+    Set<Object> newObjects = new LinkedHashSet<Object>();
+    for (Object obj : instancesOrClasses) if (!addedObjects.contains(obj)) newObjects.add(obj);
+
+    if (built && !newObjects.isEmpty())
+    {
+      Map<Object, List<RouteNode>> newRoutes = compileAll(newObjects);
+      List<RouteNode> routeNodes = new ArrayList<RouteNode>();
+      for (List<RouteNode> objectRoutes : newRoutes.values())
+      {
+        routeNodes.addAll(objectRoutes);
+      }
+      Collections.sort(routeNodes);
+      seedHits(routeNodes);
+
+      addedObjects.addAll(newObjects);
+      compiledRoutes.putAll(newRoutes);
+      publish(merge(snapshot.routeNodes, routeNodes));
+    }
+    else
+    {
+      addedObjects.addAll(newObjects);
+    }
     return this;
   }
 
   /**
-   * Builds the routing table from the added route objects. This will typically only be called once after all route objects
-   * have been added in your application's bootstrap.
+   * Removes the given objects from the routing table. Objects can be either the route class object or a route instance
+   * object that was previously added.
    *
-   * @throws RoutesException If an added route is configured incorrectly.
+   * If the routing table has already been built the routes of the given objects are dropped from the live routing table
+   * without a rebuild and requests in progress are not blocked.
+   *
+   * @param instancesOrClasses Route class or instance objects.
+   * @return This RoutingTable
    */
-  public void build() throws RoutesException
+  public synchronized RoutingTable remove(Object... instancesOrClasses)
   {
-    Parser parser = new Parser();
-    CriteriaBuilder criteriaBuilder = new CriteriaBuilder();
-    MethodParametersBuilder parametersBuilder = new MethodParametersBuilder();
-    AvailableLibraries availableLibraries = new AvailableLibraries(routesConfiguration);
-
-    List<RouteNode> routeNodes = new ArrayList<RouteNode>();
-    for (Object addedObject : addedObjects)
+    Set<RouteNode> removedRoutes = new HashSet<RouteNode>();
+    for (Object obj : instancesOrClasses)
     {
-      boolean instanceIsClass = (addedObject instanceof Class);
-      Class routesClass = instanceIsClass ? (Class) addedObject : addedObject.getClass();
-
-      List<BeforeRouteNode> classBeforeNodes = getBeforeRouteNodes(routesClass);
-      List<AfterRouteNode> classAfterNodes = getAfterRouteNodes(routesClass);
-
-      Routes routesAnnotation = new RoutesAggregate(routesClass);
-
-      int numRoutesPaths;
-      boolean routeUnannotatedPublicMethods;
-
-      if (routesAnnotation == null)
+      if (addedObjects.remove(obj))
       {
-        numRoutesPaths = 1;
-        if (routesConfiguration.routeUnannotatedPublicMethods)
+        List<RouteNode> objectRoutes = compiledRoutes.remove(obj);
+        if (objectRoutes != null)
         {
-          routeUnannotatedPublicMethods = true;
-        }
-        else
-        {
-          /*
-           * If this an empty class with no Route annotations then we're going to route the public methods since it
-           * was added to the RoutingTable
-           */
-          boolean routeAnnotationFound = false;
-          for (Method method : routesClass.getMethods())
-          {
-            if (method.getAnnotation(Route.class) != null)
-            {
-              routeAnnotationFound = true;
-              break;
-            }
-          }
-          routeUnannotatedPublicMethods = !routeAnnotationFound;
+          removedRoutes.addAll(objectRoutes);
         }
       }
-      else
+    }
+
+    if (built && !removedRoutes.isEmpty())
+    {
+      List<RouteNode> routeNodes = new ArrayList<RouteNode>();
+      for (RouteNode routeNode : snapshot.routeNodes)
       {
-        numRoutesPaths = Math.max(1, routesAnnotation.value().length);
-        routeUnannotatedPublicMethods = routesAnnotation.routeUnannotatedPublicMethods().length == 0 ? routesConfiguration.routeUnannotatedPublicMethods : routesAnnotation.routeUnannotatedPublicMethods()[0];
+        if (!removedRoutes.contains(routeNode))
+        {
+          routeNodes.add(routeNode);
+        }
       }
+      publish(routeNodes);
+    }
+    return this;
+  }
 
-      List<RouteNode> classRoutes = new ArrayList<RouteNode>();
+  /**
+   * Builds the routing table from the added route objects. This will typically only be called once after all route objects
+   * have been added in your application's bootstrap. The route objects are compiled in parallel but the resulting route
+   * priority is the same as if they were compiled one after another.
+   *
+   * @throws RoutesException If an added route is configured incorrectly.
+   */
+  public synchronized void build() throws RoutesException
+  {
+    Map<Object, List<RouteNode>> compiledRoutes = compileAll(addedObjects);
+    List<RouteNode> routeNodes = new ArrayList<RouteNode>();
+    for (List<RouteNode> objectRoutes : compiledRoutes.values())
+    {
+      routeNodes.addAll(objectRoutes);
+    }
+    Collections.sort(routeNodes);
+    seedHits(routeNodes);
 
-      for (Method method : routesClass.getMethods())
+    this.compiledRoutes = compiledRoutes;
+    publish(routeNodes);
+    if (!built)
+    {
+      built = true;
+      registerStatistics();
+      if (routesConfiguration.routeReorderSeconds > 0)
       {
-        if (isMain(method)) continue;
-
-        Route routeAnnotation = method.getAnnotation(Route.class);
-        if ((routeAnnotation != null) || (routeUnannotatedPublicMethods && Modifier.isPublic(method.getModifiers()) && (method.getDeclaringClass() == routesClass)))
+        reorderThread = new Thread(new Runnable()
         {
-
-          for (int i = 0; i < numRoutesPaths; i++)
+          @Override
+          public void run()
           {
-            RouteConfiguration routeConfiguration = new RouteConfiguration(routesClass, method, routesConfiguration, routesAnnotation, routeAnnotation, i);
-            ParsedRouteTree tree = parser.parse(routeConfiguration.route);
-            RouteInstance routeInstance = instanceIsClass ? new RouteInstance(routesClass, routesConfiguration.routeInstancePool) : new RouteInstance(addedObject);
-            Criteria criteria = criteriaBuilder.buildCriteria(method, tree, routeConfiguration, routesConfiguration);
-            List<MethodParameter> parameters = parametersBuilder.buildParameters(method, criteria);
-            ResponseType responseType = mapResponseType(method, routeConfiguration);
-            ContentConversionType contentConversionType;
-
-            /*
-             * Try to map the content version type statically. If the method is strongly typed this should work. If it's more dynamic (for example returns a java.lang.Object) then
-             * we won't be able to map it here and will have to map it dyanmically on each request.
-             */
-            if (responseType == ResponseType.STRING_CONTENT)
+            try
             {
-              MediaType mediaType = null;
-              if (hasContent(routeConfiguration.contentType))
+              while (reorderThread == Thread.currentThread())
               {
-                mediaType = MediaType.findFromMimeType(routeConfiguration.contentType);
-              }
+                Thread.sleep(routesConfiguration.routeReorderSeconds * 1000L);
 
-              if ((mediaType == null) && (routeConfiguration.respondsToMedia.size() == 1))
-              {
-                mediaType = routeConfiguration.respondsToMedia.get(0);
-              }
-
-              contentConversionType = mapContentConversionType(method.getReturnType(), mediaType, availableLibraries);
-              if ((contentConversionType != null) && nullEmpty(routeConfiguration.contentType))
-              {
-                routeConfiguration.contentType = contentConversionType.mimeType;
-              }
-            }
-            else
-            {
-              contentConversionType = null;
-            }
-
-            List<BeforeRouteNode> beforeNodes = new ArrayList<BeforeRouteNode>();
-            for (BeforeRouteNode beforeNode : classBeforeNodes)
-            {
-              if ((beforeNode.onlyTags.isEmpty() || containsOne(beforeNode.onlyTags, routeConfiguration.tags)) && (beforeNode.exceptTags.isEmpty() || !containsOne(beforeNode.exceptTags, routeConfiguration.tags)))
-              {
-                beforeNodes.add(beforeNode);
+                if (reorderThread == Thread.currentThread())
+                {
+                  reorderRoutes();
+                }
               }
             }
-
-            List<AfterRouteNode> afterNodes = new ArrayList<AfterRouteNode>();
-            for (AfterRouteNode afterNode : classAfterNodes)
+            catch (InterruptedException e)
+            {}
+            catch (Exception e)
             {
-              if ((afterNode.onlyTags.isEmpty() || containsOne(afterNode.onlyTags, routeConfiguration.tags)) && (afterNode.exceptTags.isEmpty() || !containsOne(afterNode.exceptTags, routeConfiguration.tags)))
+              if (routesConfiguration.logger != null)
               {
-                afterNodes.add(afterNode);
+                routesConfiguration.logger.logError("Routes reorder thread crashed.", e);
               }
             }
-
-            classRoutes.add(new RouteNode(routeNodes.size(), method, routeConfiguration, routeInstance, criteria, parameters, responseType, contentConversionType, beforeNodes, afterNodes));
           }
-        }
-      }
+        }, "Routes Reordering");
 
-      if (!classRoutes.isEmpty())
-      {
-        routeNodes.addAll(classRoutes);
+        reorderThread.setDaemon(true);
+        reorderThread.start();
       }
-      else
-      {
-        throw new RoutesException("Route class: " + routesClass + " has no routes.");
-      }
-
-    }
-    Collections.sort(routeNodes);
 
-    this.routeNodes = routeNodes;
-    if (!built)
-    {
-      built = true;
       if (routesConfiguration.developmentMode)
       {
         if (routesConfiguration.logger != null)
@@ -296,15 +313,33 @@ public class RoutingTable
           @Override
           public void run()
           {
+            RouteClassWatcher classWatcher = new RouteClassWatcher(routesConfiguration.logger);
             try
             {
+              classWatcher.findChanged(getAddedObjects());
               while (developmentModeThread == Thread.currentThread())
               {
-                Thread.sleep(routesConfiguration.developmentReloadCycleSeconds * 1000);
-
-                build();
+                classWatcher.await(routesConfiguration.developmentReloadCycleSeconds);
+
+                List<Object> changedObjects = classWatcher.findChanged(getAddedObjects());
+                if (!changedObjects.isEmpty() && (developmentModeThread == Thread.currentThread()))
+                {
+                  try
+                  {
+                    reload(changedObjects);
+                  }
+                  catch (RoutesException e)
+                  {
+                    if (routesConfiguration.logger != null)
+                    {
+                      routesConfiguration.logger.logError("Unable to reload changed routes. The previous routes will be used until they are fixed.", e);
+                    }
+                  }
+                }
               }
             }
+            catch (InterruptedException e)
+            {}
             catch (Exception e)
             {
               if (routesConfiguration.logger != null)
@@ -312,6 +347,10 @@ public class RoutingTable
                 routesConfiguration.logger.logError("Routes development mode thread crashed.", e);
               }
             }
+            finally
+            {
+              classWatcher.close();
+            }
           }
         }, "Routes Development Reloading");
 
@@ -321,35 +360,493 @@ public class RoutingTable
     }
   }
 
-  public void shutdown()
+  public synchronized void shutdown()
   {
+    for (Thread thread : new Thread[]{developmentModeThread, reorderThread})
+    {
+      if (thread != null)
+      {
+        thread.interrupt();
+      }
+    }
     developmentModeThread = null;
+    reorderThread = null;
     built = false;
-    routeNodes.clear();;
+    unregisterStatistics();
+    publish(new ArrayList<RouteNode>());
   }
 
-  MatchedRoute find(RequestPath path, RequestParameters parameters, HttpMethod httpMethod, RequestedMediaType requestedMediaType)
+  /**
+   * Builds the routing table if it hasn't been built since the last routes were added. Requests only wait here until the
+   * first build completes. After that they use the current snapshot without locking.
+   */
+  void buildIfNecessary() throws RoutesException
+  {
+    if (!built)
+    {
+      synchronized (this)
+      {
+        if (!built)
+        {
+          build();
+        }
+      }
+    }
+  }
+
+  /**
+   * Recompiles the given route objects and replaces their routes in the live routing table. The other route objects are not
+   * recompiled and requests continue to use the current snapshot until the new one is published.
+   *
+   * @throws RoutesException If a changed route is configured incorrectly. The current routes are left as is in this case.
+   */
+  synchronized void reload(List<Object> changedObjects) throws RoutesException
+  {
+    RouteCompiler routeCompiler = new RouteCompiler();
+    Map<Object, List<RouteNode>> reloadedRoutes = new HashMap<Object, List<RouteNode>>();
+    Set<RouteNode> replacedRoutes = new HashSet<RouteNode>();
+    List<RouteNode> routeNodes = new ArrayList<RouteNode>();
+    for (Object changedObject : changedObjects)
+    {
+      List<RouteNode> objectRoutes = compiledRoutes.get(changedObject);
+      if (objectRoutes != null)
+      {
+        /*
+         * Keep the original index so the reloaded routes have the same priority against the other route objects.
+         */
+        List<RouteNode> reloadedObjectRoutes = compile(changedObject, objectRoutes.get(0).index, routeCompiler);
+        reloadedRoutes.put(changedObject, reloadedObjectRoutes);
+        replacedRoutes.addAll(objectRoutes);
+        routeNodes.addAll(reloadedObjectRoutes);
+      }
+    }
+
+    if (!reloadedRoutes.isEmpty())
+    {
+      Collections.sort(routeNodes);
+
+      List<RouteNode> currentRouteNodes = new ArrayList<RouteNode>();
+      for (RouteNode routeNode : snapshot.routeNodes)
+      {
+        if (!replacedRoutes.contains(routeNode))
+        {
+          currentRouteNodes.add(routeNode);
+        }
+      }
+
+      seedHits(routeNodes);
+      compiledRoutes.putAll(reloadedRoutes);
+      publish(merge(currentRouteNodes, routeNodes));
+    }
+  }
+
+  synchronized List<Object> getAddedObjects()
+  {
+    return new ArrayList<Object>(addedObjects);
+  }
+
+  /**
+   * @return The number of requests matched by each route (by route key) in priority order. The counts can be saved and loaded
+   * at startup with {@link #loadRouteHits(java.util.Map)} so the most frequently matched routes are searched first from the
+   * start.
+   */
+  public Map<String, Long> getRouteHits()
+  {
+    Map<String, Long> routeHits = new LinkedHashMap<String, Long>();
+    for (RouteNode routeNode : snapshot.routeNodes)
+    {
+      routeHits.put(routeNode.getKey(), routeNode.hits.sum());
+    }
+    return routeHits;
+  }
+
+  /**
+   * Adds the given route hits (as returned by {@link #getRouteHits()}) to the routes. Routes not yet built get the hits when
+   * they are built. Route keys that don't match a route are ignored.
+   *
+   * @param routeHits The number of requests matched by each route (by route key).
+   */
+  public synchronized void loadRouteHits(Map<String, Long> routeHits)
+  {
+    loadedRouteHits = new HashMap<String, Long>(routeHits);
+    if (built)
+    {
+      for (RouteNode routeNode : snapshot.routeNodes)
+      {
+        Long hits = routeHits.get(routeNode.getKey());
+        if (hits != null)
+        {
+          routeNode.hits.add(hits);
+        }
+      }
+      reorderRoutes();
+    }
+  }
+
+  /**
+   * Reorders the route search so the routes that have matched the most requests are checked first. Routes are only moved
+   * ahead of routes they can't overlap with so which route matches a request never changes. If
+   * {@link RoutesConfiguration#routeReorderSeconds} is set this is called periodically.
+   */
+  public synchronized void reorderRoutes()
+  {
+    if (built)
+    {
+      publish(snapshot.routeNodes);
+    }
+  }
+
+  /*
+   * Publishes a new snapshot of the given route nodes (in priority order). Newly shadowed routes are reported. If the routes
+   * changed the routes cache is told about the new generation so routes cached from earlier generations are dropped. Otherwise
+   * only the search is reordered and the shadow analysis and negative lookup caches of the current snapshot are kept.
+   */
+  private void publish(List<RouteNode> sortedRouteNodes)
   {
-    List<Matcher> pathMatchers = new ArrayList<Matcher>();
-    Map<String, Matcher> parameterMatchers = new HashMap<String, Matcher>();
+    Map<RouteNode, RouteNode> previouslyShadowed = snapshot.shadowedRouteNodes;
+    boolean routesChanged = !sortedRouteNodes.equals(snapshot.routeNodes);
+    if (routesChanged)
+    {
+      ++routesGeneration;
+    }
+    snapshot = routesChanged ? new RoutingSnapshot(++snapshotVersion, routesGeneration, sortedRouteNodes, routesConfiguration, statistics) : new RoutingSnapshot(++snapshotVersion, snapshot);
+
+    if (routesChanged && (routesConfiguration.routesCache != null))
+    {
+      routesConfiguration.routesCache.routingTableBuilt(routesGeneration, snapshot.routingParameterNames);
+    }
+
+    if (routesConfiguration.logger != null)
+    {
+      for (Map.Entry<RouteNode, RouteNode> entry : snapshot.shadowedRouteNodes.entrySet())
+      {
+        if (!previouslyShadowed.containsKey(entry.getKey()))
+        {
+          routesConfiguration.logger.logError("Route: " + entry.getKey().getKey() + " can never match because route: " + entry.getValue().getKey() + " matches every request it does. It has been removed from the route search.");
+        }
+      }
+    }
+  }
+
+  private void registerStatistics()
+  {
+    if ((routesConfiguration.statisticsObjectName != null) && (registeredStatisticsName == null))
+    {
+      try
+      {
+        ObjectName objectName = new ObjectName(routesConfiguration.statisticsObjectName);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, objectName);
+        registeredStatisticsName = objectName;
+      }
+      catch (Exception e)
+      {
+        if (routesConfiguration.logger != null)
+        {
+          routesConfiguration.logger.logError("Unable to register routing statistics with JMX name: " + routesConfiguration.statisticsObjectName, e);
+        }
+      }
+    }
+  }
+
+  private void unregisterStatistics()
+  {
+    if (registeredStatisticsName != null)
+    {
+      try
+      {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredStatisticsName);
+      }
+      catch (Exception e)
+      {
+        if (routesConfiguration.logger != null)
+        {
+          routesConfiguration.logger.logError("Unable to unregister routing statistics with JMX name: " + registeredStatisticsName, e);
+        }
+      }
+      registeredStatisticsName = null;
+    }
+  }
+
+  /*
+   * Newly compiled routes start with the hits of the route with the same key in the current snapshot or else the loaded hits.
+   */
+  private void seedHits(List<RouteNode> routeNodes)
+  {
+    Map<String, Long> currentHits = getRouteHits();
     for (RouteNode routeNode : routeNodes)
     {
-      pathMatchers.clear();
-      parameterMatchers.clear();
-      if (routeNode.criteria.matches(httpMethod, requestedMediaType, path, parameters, pathMatchers, parameterMatchers))
+      String key = routeNode.getKey();
+      Long hits = currentHits.containsKey(key) ? currentHits.get(key) : loadedRouteHits.get(key);
+      if (hits != null)
       {
-        return new MatchedRoute(routeNode, pathMatchers, parameterMatchers);
+        routeNode.hits.add(hits);
       }
     }
-    return null;
+  }
+
+  RoutingSnapshot getSnapshot()
+  {
+    return snapshot;
+  }
+
+  MatchedRoute find(RequestPath path, RequestParameters parameters, HttpMethod httpMethod, RequestedMediaType requestedMediaType)
+  {
+    if (routesConfiguration.timeLookups)
+    {
+      long start = System.nanoTime();
+      MatchedRoute matchedRoute = snapshot.find(path, parameters, httpMethod, requestedMediaType);
+      statistics.recordLookupTime(System.nanoTime() - start);
+      return matchedRoute;
+    }
+    else
+    {
+      return snapshot.find(path, parameters, httpMethod, requestedMediaType);
+    }
+  }
+
+  /**
+   * @return The lookup statistics of this routing table (and the statistics of the configured routes cache).
+   */
+  public RoutingStatistics getStatistics()
+  {
+    return statistics;
   }
 
   List<RouteNode> getRouteNodes()
   {
-    return new ArrayList<RouteNode>(routeNodes);
+    return new ArrayList<RouteNode>(snapshot.routeNodes);
   }
 
-  static List<BeforeRouteNode> getBeforeRouteNodes(Class clazz) throws RoutesException
+  /*
+   * Compiles the given route objects on the fork join pool when there is more than one. The compiled routes are returned in the
+   * order of the given objects and each object gets the same index it would have gotten compiling them one after another so
+   * the route priority is the same either way. If more than one object fails to compile the error of the first (in order)
+   * is thrown.
+   */
+  private Map<Object, List<RouteNode>> compileAll(Collection<Object> routeObjects) throws RoutesException
+  {
+    final RouteCompiler routeCompiler = new RouteCompiler();
+    Map<Object, List<RouteNode>> compiled = new LinkedHashMap<Object, List<RouteNode>>();
+
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    if ((routeObjects.size() < 2) || (pool.getParallelism() < 2))
+    {
+      for (Object routeObject : routeObjects)
+      {
+        compiled.put(routeObject, compile(routeObject, compiledObjects++, routeCompiler));
+      }
+      return compiled;
+    }
+
+    List<ForkJoinTask<List<RouteNode>>> tasks = new ArrayList<ForkJoinTask<List<RouteNode>>>(routeObjects.size());
+    for (final Object routeObject : routeObjects)
+    {
+      final int index = compiledObjects++;
+      tasks.add(pool.submit(new Callable<List<RouteNode>>()
+      {
+        @Override
+        public List<RouteNode> call() throws Exception
+        {
+          return compile(routeObject, index, routeCompiler);
+        }
+      }));
+    }
+
+    try
+    {
+      int i = 0;
+      for (Object routeObject : routeObjects)
+      {
+        compiled.put(routeObject, tasks.get(i++).get());
+      }
+      return compiled;
+    }
+    catch (InterruptedException e)
+    {
+      cancel(tasks);
+      Thread.currentThread().interrupt();
+      throw new RoutesException("Interrupted while compiling routes.", e);
+    }
+    catch (ExecutionException e)
+    {
+      cancel(tasks);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      else if (cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      else
+      {
+        throw new RoutesException("Unable to compile routes.", cause);
+      }
+    }
+  }
+
+  static void cancel(List<ForkJoinTask<List<RouteNode>>> tasks)
+  {
+    for (ForkJoinTask<List<RouteNode>> task : tasks)
+    {
+      task.cancel(false);
+    }
+  }
+
+  /*
+   * Route nodes of different objects with equal criteria are ordered by the order the objects were compiled in (which is the order
+   * they were added in).
+   */
+  private List<RouteNode> compile(Object addedObject, int index, RouteCompiler routeCompiler) throws RoutesException
+  {
+    boolean instanceIsClass = (addedObject instanceof Class);
+    Class routesClass = instanceIsClass ? (Class) addedObject : addedObject.getClass();
+
+    Map<String, DirectMethod> directMethods = DirectMethod.forClass(routesClass);
+    List<BeforeRouteNode> classBeforeNodes = getBeforeRouteNodes(routesClass, directMethods);
+    List<AfterRouteNode> classAfterNodes = getAfterRouteNodes(routesClass, directMethods);
+
+    Routes routesAnnotation = new RoutesAggregate(routesClass);
+
+    int numRoutesPaths;
+    boolean routeUnannotatedPublicMethods;
+
+    if (routesAnnotation == null)
+    {
+      numRoutesPaths = 1;
+      if (routesConfiguration.routeUnannotatedPublicMethods)
+      {
+        routeUnannotatedPublicMethods = true;
+      }
+      else
+      {
+        /*
+         * If this an empty class with no Route annotations then we're going to route the public methods since it
+         * was added to the RoutingTable
+         */
+        boolean routeAnnotationFound = false;
+        for (Method method : routesClass.getMethods())
+        {
+          if (method.getAnnotation(Route.class) != null)
+          {
+            routeAnnotationFound = true;
+            break;
+          }
+        }
+        routeUnannotatedPublicMethods = !routeAnnotationFound;
+      }
+    }
+    else
+    {
+      numRoutesPaths = Math.max(1, routesAnnotation.value().length);
+      routeUnannotatedPublicMethods = routesAnnotation.routeUnannotatedPublicMethods().length == 0 ? routesConfiguration.routeUnannotatedPublicMethods : routesAnnotation.routeUnannotatedPublicMethods()[0];
+    }
+
+    List<RouteNode> classRoutes = new ArrayList<RouteNode>();
+
+    for (Method method : routesClass.getMethods())
+    {
+      if (isMain(method)) continue;
+
+      Route routeAnnotation = method.getAnnotation(Route.class);
+      if ((routeAnnotation != null) || (routeUnannotatedPublicMethods && Modifier.isPublic(method.getModifiers()) && (method.getDeclaringClass() == routesClass)))
+      {
+
+        for (int i = 0; i < numRoutesPaths; i++)
+        {
+          RouteConfiguration routeConfiguration = new RouteConfiguration(routesClass, method, routesConfiguration, routesAnnotation, routeAnnotation, i);
+          ParsedRouteTree tree = routeCompiler.parser.parse(routeConfiguration.route);
+          RouteInstance routeInstance = instanceIsClass ? new RouteInstance(routesClass, routesConfiguration.routeInstancePool) : new RouteInstance(addedObject);
+          Criteria criteria = routeCompiler.criteriaBuilder.buildCriteria(method, tree, routeConfiguration, routesConfiguration);
+          List<MethodParameter> parameters = routeCompiler.parametersBuilder.buildParameters(method, criteria);
+          ResponseType responseType = mapResponseType(method, routeConfiguration);
+          ContentConversionType contentConversionType;
+
+          /*
+           * Try to map the content version type statically. If the method is strongly typed this should work. If it's more dynamic (for example returns a java.lang.Object) then
+           * we won't be able to map it here and will have to map it dyanmically on each request.
+           */
+          if (responseType == ResponseType.STRING_CONTENT)
+          {
+            MediaType mediaType = null;
+            if (hasContent(routeConfiguration.contentType))
+            {
+              mediaType = MediaType.findFromMimeType(routeConfiguration.contentType);
+            }
+
+            if ((mediaType == null) && (routeConfiguration.respondsToMedia.size() == 1))
+            {
+              mediaType = routeConfiguration.respondsToMedia.get(0);
+            }
+
+            contentConversionType = mapContentConversionType(method.getReturnType(), mediaType, routeCompiler.availableLibraries);
+            if ((contentConversionType != null) && nullEmpty(routeConfiguration.contentType))
+            {
+              routeConfiguration.contentType = contentConversionType.mimeType;
+            }
+          }
+          else
+          {
+            contentConversionType = null;
+          }
+
+          List<BeforeRouteNode> beforeNodes = new ArrayList<BeforeRouteNode>();
+          for (BeforeRouteNode beforeNode : classBeforeNodes)
+          {
+            if ((beforeNode.onlyTags.isEmpty() || containsOne(beforeNode.onlyTags, routeConfiguration.tags)) && (beforeNode.exceptTags.isEmpty() || !containsOne(beforeNode.exceptTags, routeConfiguration.tags)))
+            {
+              beforeNodes.add(beforeNode);
+            }
+          }
+
+          List<AfterRouteNode> afterNodes = new ArrayList<AfterRouteNode>();
+          for (AfterRouteNode afterNode : classAfterNodes)
+          {
+            if ((afterNode.onlyTags.isEmpty() || containsOne(afterNode.onlyTags, routeConfiguration.tags)) && (afterNode.exceptTags.isEmpty() || !containsOne(afterNode.exceptTags, routeConfiguration.tags)))
+            {
+              afterNodes.add(afterNode);
+            }
+          }
+
+          classRoutes.add(new RouteNode(index, method, DirectMethod.find(directMethods, method), routeConfiguration, routeInstance, criteria, parameters, responseType, contentConversionType, beforeNodes, afterNodes));
+        }
+      }
+    }
+
+    if (classRoutes.isEmpty())
+    {
+      throw new RoutesException("Route class: " + routesClass + " has no routes.");
+    }
+
+    Collections.sort(classRoutes);
+    return classRoutes;
+  }
+
+  /*
+   * Merges the two route node lists (each already in priority order) into one list in priority order.
+   */
+  static List<RouteNode> merge(List<RouteNode> routeNodes, List<RouteNode> otherRouteNodes)
+  {
+    List<RouteNode> merged = new ArrayList<RouteNode>(routeNodes.size() + otherRouteNodes.size());
+    int i = 0, j = 0;
+    while ((i < routeNodes.size()) && (j < otherRouteNodes.size()))
+    {
+      if (otherRouteNodes.get(j).compareTo(routeNodes.get(i)) < 0)
+      {
+        merged.add(otherRouteNodes.get(j++));
+      }
+      else
+      {
+        merged.add(routeNodes.get(i++));
+      }
+    }
+    merged.addAll(routeNodes.subList(i, routeNodes.size()));
+    merged.addAll(otherRouteNodes.subList(j, otherRouteNodes.size()));
+    return merged;
+  }
+
+  static List<BeforeRouteNode> getBeforeRouteNodes(Class clazz, Map<String, DirectMethod> directMethods) throws RoutesException
   {
     List<Class> classHierarchy = new ArrayList<Class>();
     classHierarchy.add(clazz);
@@ -373,7 +870,7 @@ public class RoutingTable
           List<MethodParameter> routeParameters = new MethodParametersBuilder().buildParameters(method);
           Integer explicitOrder = beforeRoute.order().length == 0 ? null : beforeRoute.order()[0];
 
-          nodes.add(new BeforeRouteNode(method, routeParameters, returnsBoolean, new HashSet<String>(Arrays.asList(beforeRoute.onlyTags())), new HashSet<String>(Arrays.asList(beforeRoute.exceptTags())), explicitOrder, hierarchyOrder));
+          nodes.add(new BeforeRouteNode(method, DirectMethod.find(directMethods, method), routeParameters, returnsBoolean, new HashSet<String>(Arrays.asList(beforeRoute.onlyTags())), new HashSet<String>(Arrays.asList(beforeRoute.exceptTags())), explicitOrder, hierarchyOrder));
         }
         else
         {
@@ -386,7 +883,7 @@ public class RoutingTable
     return nodes;
   }
 
-  static List<AfterRouteNode> getAfterRouteNodes(Class clazz) throws RoutesException
+  static List<AfterRouteNode> getAfterRouteNodes(Class clazz, Map<String, DirectMethod> directMethods) throws RoutesException
   {
     List<Class> classHierarchy = new ArrayList<Class>();
     classHierarchy.add(clazz);
@@ -410,7 +907,7 @@ public class RoutingTable
           boolean onlyOnSuccess = afterRoute.onlyOnSuccess().length == 0 ? false : afterRoute.onlyOnSuccess()[0];
           boolean onlyOnError = afterRoute.onlyOnError().length == 0 ? false : afterRoute.onlyOnError()[0];
           Integer explicitOrder = afterRoute.order().length == 0 ? null : afterRoute.order()[0];
-          nodes.add(new AfterRouteNode(method, routeParameters, new HashSet<String>(Arrays.asList(afterRoute.onlyTags())), new HashSet<String>(Arrays.asList(afterRoute.exceptTags())), onlyOnSuccess, onlyOnError, explicitOrder, hierarchyOrder));
+          nodes.add(new AfterRouteNode(method, DirectMethod.find(directMethods, method), routeParameters, new HashSet<String>(Arrays.asList(afterRoute.onlyTags())), new HashSet<String>(Arrays.asList(afterRoute.exceptTags())), onlyOnSuccess, onlyOnError, explicitOrder, hierarchyOrder));
         }
         else
         {
@@ -476,4 +973,18 @@ public class RoutingTable
       return ResponseType.STRING_CONTENT;
     }
   }
+
+  /*
+   * The builders shared by all routes compiled together.
+   */
+  class RouteCompiler
+  {
+    final Parser parser = new Parser();
+
+    final CriteriaBuilder criteriaBuilder = new CriteriaBuilder();
+
+    final MethodParametersBuilder parametersBuilder = new MethodParametersBuilder();
+
+    final AvailableLibraries availableLibraries = new AvailableLibraries(routesConfiguration);
+  }
 }
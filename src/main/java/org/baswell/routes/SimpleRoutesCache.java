@@ -27,6 +27,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * A very simple in memory cache implementation. This class has not been tested (well) so there are likely issues.
  * </p>
  *
+ * @see org.baswell.routes.TinyLfuRoutesCache
+ *
  * @see org.baswell.routes.RoutesConfiguration#routesCache
  */
 public class SimpleRoutesCache implements RoutesCache
@@ -37,15 +39,29 @@ public class SimpleRoutesCache implements RoutesCache
 
   private final boolean parametersUsedInRouting;
 
+  private volatile List<String> routingParameterNames = Collections.emptyList();
+
+  private volatile long generation;
+
+  private final RoutesCacheStatistics statistics = new RoutesCacheStatistics();
+
   private volatile long lastCleanAt = System.currentTimeMillis();
 
-  private final Map<String, RouteCachedNode> cachedNodes = new ConcurrentHashMap<String, RouteCachedNode>();
+  /*
+   * Keyed by RoutesCacheKey unless a subclass overrides getKey.
+   */
+  private final Map<Object, RouteCachedNode> cachedNodes = new ConcurrentHashMap<Object, RouteCachedNode>();
+
+  /*
+   * True if a subclass overrides the deprecated getKey. The keys it returns are used instead of RoutesCacheKey so the override still works.
+   */
+  private final boolean keyOverridden;
 
   /**
    *
    * @param maxCachedRoutes The maximum number of routes to cache in memory.
    * @param minCleanMSecs The minimum number of seconds between cache cleans.
-   * @param parametersUsedInRouting Are parameters used in determining route matches?
+   * @param parametersUsedInRouting Are parameters used in determining route matches? If so only the parameters routes are matched on are part of the cache key.
    */
   public SimpleRoutesCache(int maxCachedRoutes, int minCleanMSecs, boolean parametersUsedInRouting)
   {
@@ -55,20 +71,53 @@ public class SimpleRoutesCache implements RoutesCache
     this.maxCachedRoutes = maxCachedRoutes;
     this.minCleanMSecs = minCleanMSecs;
     this.parametersUsedInRouting = parametersUsedInRouting;
+    keyOverridden = overridesGetKey(getClass());
   }
 
   @Override
   public Object get(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
   {
-    RouteCachedNode cachedNode = cachedNodes.get(getKey(method, requestedMediaType, path, parameters));
-    return cachedNode == null ? null : cachedNode.accessed();
+    Object key = keyOverridden ? getKey(method, requestedMediaType, path, parameters) : RoutesCacheKey.probe(method, requestedMediaType, path, parameters, routingParameterNames);
+    RouteCachedNode cachedNode = cachedNodes.get(key);
+    if (cachedNode == null)
+    {
+      statistics.recordMiss();
+      return null;
+    }
+    else if (cachedNode.generation != generation)
+    {
+      if (cachedNodes.remove(cachedNode.key, cachedNode))
+      {
+        statistics.recordEntries(-1);
+      }
+      statistics.recordMiss();
+      return null;
+    }
+    else
+    {
+      statistics.recordHit();
+      return cachedNode.accessed();
+    }
+  }
+
+  @Override
+  public void routingTableBuilt(long generation, List<String> routingParameterNames)
+  {
+    this.generation = generation;
+    if (parametersUsedInRouting)
+    {
+      this.routingParameterNames = routingParameterNames;
+    }
   }
 
   @Override
   public void put(Object routeNode, HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
   {
-    String key = getKey(method, requestedMediaType, path, parameters);
-    cachedNodes.put(key, new RouteCachedNode(key, routeNode));
+    Object key = keyOverridden ? getKey(method, requestedMediaType, path, parameters) : new RoutesCacheKey(method, requestedMediaType, path, parameters, routingParameterNames);
+    if (cachedNodes.put(key, new RouteCachedNode(key, routeNode, generation)) == null)
+    {
+      statistics.recordEntries(1);
+    }
     if ((System.currentTimeMillis() - lastCleanAt) >= minCleanMSecs)
     {
       purgeIfNecessary();
@@ -82,18 +131,39 @@ public class SimpleRoutesCache implements RoutesCache
       lastCleanAt = System.currentTimeMillis();
       if (cachedNodes.size() > maxCachedRoutes)
       {
+        long start = System.nanoTime();
         List<RouteCachedNode> cachedNodesList = new ArrayList<RouteCachedNode>(cachedNodes.values());
         Collections.sort(cachedNodesList);
+        int evicted = 0;
         for (int i = (cachedNodesList.size() - 1); ((i > maxCachedRoutes) && (i >= 0)); i--)
         {
-          cachedNodes.remove(cachedNodesList.get(i).key);
+          RouteCachedNode cachedNode = cachedNodesList.get(i);
+          if (cachedNodes.remove(cachedNode.key, cachedNode))
+          {
+            ++evicted;
+          }
         }
-
+        statistics.recordEvictions(evicted);
+        statistics.recordEntries(-evicted);
+        statistics.recordPurge(System.nanoTime() - start);
       }
       lastCleanAt = System.currentTimeMillis();
     }
   }
 
+  @Override
+  public RoutesCacheStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+  /**
+   * The string key this cache used before it was keyed by {@link RoutesCacheKey}. It is no longer called unless a subclass
+   * overrides it, in which case the keys returned by the override are used in place of {@link RoutesCacheKey}.
+   *
+   * @deprecated Use {@link RoutesCacheKey}.
+   */
+  @Deprecated
   protected String getKey(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
   {
     StringBuilder keyBuilder = new StringBuilder(method.toString()).append(':').append(requestedMediaType).append(':').append(path);
@@ -104,22 +174,40 @@ public class SimpleRoutesCache implements RoutesCache
     return keyBuilder.toString();
   }
 
+  static boolean overridesGetKey(Class clazz)
+  {
+    for (; clazz != SimpleRoutesCache.class; clazz = clazz.getSuperclass())
+    {
+      try
+      {
+        clazz.getDeclaredMethod("getKey", HttpMethod.class, RequestedMediaType.class, RequestPath.class, RequestParameters.class);
+        return true;
+      }
+      catch (NoSuchMethodException e)
+      {}
+    }
+    return false;
+  }
+
   static class RouteCachedNode implements Comparable<RouteCachedNode>
   {
-    final String key;
+    final Object key;
 
     final Object routeNode;
 
+    final long generation;
+
     final long createdAt = System.currentTimeMillis();
 
-    long lastAccessedAt = createdAt;
+    volatile long lastAccessedAt = createdAt;
 
     AtomicInteger numberAccesses = new AtomicInteger(1);
 
-    RouteCachedNode(String key, Object routeNode)
+    RouteCachedNode(Object key, Object routeNode, long generation)
     {
       this.key = key;
       this.routeNode = routeNode;
+      this.generation = generation;
     }
 
     Object accessed()
@@ -132,14 +220,14 @@ public class SimpleRoutesCache implements RoutesCache
     @Override
     public int compareTo(RouteCachedNode cachedNode)
     {
-      int numberAccessesCompare = cachedNode.numberAccesses.get() - numberAccesses.get();
+      int numberAccessesCompare = Integer.compare(cachedNode.numberAccesses.get(), numberAccesses.get());
       if (numberAccessesCompare != 0)
       {
         return numberAccessesCompare;
       }
       else
       {
-        return (int)(cachedNode.lastAccessedAt - lastAccessedAt);
+        return Long.compare(cachedNode.lastAccessedAt, lastAccessedAt);
       }
     }
   }
@@ -0,0 +1,549 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A bounded in memory cache that uses the W-TinyLFU eviction policy. New entries enter a small LRU admission window. When the window
+ * is full its oldest entry competes with the oldest entry of the main segmented LRU (probation and protected segments) and the one
+ * with the lower estimated access frequency is evicted. Access frequencies are estimated with a count-min sketch of 4 bit counters
+ * that are halved periodically so that entries that were only popular in the past age out.
+ * </p>
+ *
+ * <p>
+ * Reads never lock. Reads and writes are recorded in buffers that are replayed against the eviction policy by whichever thread gets
+ * the eviction lock (without waiting for it) so the cost of eviction is amortized O(1) per request. Reads are recorded in a lossy
+ * ring buffer so under heavy load some accesses are not counted which only affects the frequency estimates.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * routesConfiguration.routesCache = new TinyLfuRoutesCache(10000, false);
+ * }
+ * </pre>
+ *
+ * @see org.baswell.routes.RoutesConfiguration#routesCache
+ */
+public class TinyLfuRoutesCache implements RoutesCache
+{
+  /*
+   * Must be a power of two.
+   */
+  private static final int READ_BUFFER_SIZE = 128;
+
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  private final int maximumSize;
+
+  private final int maximumWindowSize;
+
+  private final int maximumProtectedSize;
+
+  private final boolean parametersUsedInRouting;
+
+  private volatile List<String> routingParameterNames = Collections.emptyList();
+
+  private volatile long generation;
+
+  private final RoutesCacheStatistics statistics = new RoutesCacheStatistics();
+
+  private final ConcurrentHashMap<Object, CacheNode> cachedNodes = new ConcurrentHashMap<Object, CacheNode>();
+
+  private final AtomicReferenceArray<CacheNode> readBuffer = new AtomicReferenceArray<CacheNode>(READ_BUFFER_SIZE);
+
+  private final AtomicLong readBufferWrites = new AtomicLong();
+
+  private final ConcurrentLinkedQueue<CacheNode> writeBuffer = new ConcurrentLinkedQueue<CacheNode>();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /*
+   * Everything below is only accessed while holding the eviction lock.
+   */
+  private final FrequencySketch sketch;
+
+  private final NodeList window = new NodeList(CacheNode.WINDOW);
+
+  private final NodeList probation = new NodeList(CacheNode.PROBATION);
+
+  private final NodeList protectedNodes = new NodeList(CacheNode.PROTECTED);
+
+  /**
+   * @param maximumSize The maximum number of routes to cache in memory.
+   * @param parametersUsedInRouting Are parameters used in determining route matches? If so only the parameters routes are matched on are part of the cache key.
+   */
+  public TinyLfuRoutesCache(int maximumSize, boolean parametersUsedInRouting)
+  {
+    if (maximumSize <= 0)
+    {
+      throw new IllegalArgumentException("Maximum size must be greater than zero.");
+    }
+
+    this.maximumSize = maximumSize;
+    this.parametersUsedInRouting = parametersUsedInRouting;
+    maximumWindowSize = Math.max(1, maximumSize / 100);
+    maximumProtectedSize = (int)((maximumSize - maximumWindowSize) * 0.8);
+    sketch = new FrequencySketch(maximumSize);
+  }
+
+  @Override
+  public Object get(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
+  {
+    CacheNode cachedNode = cachedNodes.get(RoutesCacheKey.probe(method, requestedMediaType, path, parameters, routingParameterNames));
+    if (cachedNode == null)
+    {
+      statistics.recordMiss();
+      return null;
+    }
+    else if (cachedNode.generation != generation)
+    {
+      statistics.recordMiss();
+      if (cachedNodes.remove(cachedNode.key, cachedNode))
+      {
+        statistics.recordEntries(-1);
+        cachedNode.retired = true;
+        writeBuffer.add(cachedNode);
+        tryMaintenance();
+      }
+      return null;
+    }
+    else
+    {
+      statistics.recordHit();
+      long index = readBufferWrites.getAndIncrement();
+      readBuffer.lazySet((int)(index & READ_BUFFER_MASK), cachedNode);
+      if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK)
+      {
+        tryMaintenance();
+      }
+      return cachedNode.routeNode;
+    }
+  }
+
+  @Override
+  public void routingTableBuilt(long generation, List<String> routingParameterNames)
+  {
+    this.generation = generation;
+    if (parametersUsedInRouting)
+    {
+      this.routingParameterNames = routingParameterNames;
+    }
+  }
+
+  @Override
+  public void put(Object routeNode, HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
+  {
+    RoutesCacheKey key = new RoutesCacheKey(method, requestedMediaType, path, parameters, routingParameterNames);
+    CacheNode cachedNode = new CacheNode(key, routeNode, generation);
+    CacheNode replacedNode = cachedNodes.put(key, cachedNode);
+    if (replacedNode == null)
+    {
+      statistics.recordEntries(1);
+    }
+    else
+    {
+      replacedNode.retired = true;
+      writeBuffer.add(replacedNode);
+    }
+    writeBuffer.add(cachedNode);
+    tryMaintenance();
+  }
+
+  /**
+   * @return The number of cached routes. This may briefly be larger than the maximum size until pending writes are replayed.
+   */
+  public int size()
+  {
+    return cachedNodes.size();
+  }
+
+  @Override
+  public RoutesCacheStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+  /**
+   * Replays all buffered reads and writes against the eviction policy, waiting for the eviction lock if necessary.
+   */
+  void cleanUp()
+  {
+    evictionLock.lock();
+    try
+    {
+      maintenance();
+    }
+    finally
+    {
+      evictionLock.unlock();
+    }
+  }
+
+  /*
+   * If another thread holds the lock it will replay whatever was buffered. Writes buffered after that thread finished draining
+   * the write buffer are picked up here once the lock is released.
+   */
+  private void tryMaintenance()
+  {
+    while (evictionLock.tryLock())
+    {
+      try
+      {
+        maintenance();
+      }
+      finally
+      {
+        evictionLock.unlock();
+      }
+
+      if (writeBuffer.isEmpty())
+      {
+        break;
+      }
+    }
+  }
+
+  private void maintenance()
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < READ_BUFFER_SIZE; i++)
+    {
+      CacheNode cachedNode = readBuffer.getAndSet(i, null);
+      if (cachedNode != null)
+      {
+        onAccess(cachedNode);
+      }
+    }
+
+    CacheNode cachedNode;
+    while ((cachedNode = writeBuffer.poll()) != null)
+    {
+      onWrite(cachedNode);
+    }
+
+    evict();
+    statistics.recordPurge(System.nanoTime() - start);
+  }
+
+  private void onAccess(CacheNode cachedNode)
+  {
+    sketch.increment(cachedNode.key.hashCode());
+    switch (cachedNode.queue)
+    {
+      case CacheNode.WINDOW:
+        window.moveToTail(cachedNode);
+        break;
+
+      case CacheNode.PROBATION:
+        probation.remove(cachedNode);
+        protectedNodes.addTail(cachedNode);
+        while (protectedNodes.size > maximumProtectedSize)
+        {
+          probation.addTail(protectedNodes.removeHead());
+        }
+        break;
+
+      case CacheNode.PROTECTED:
+        protectedNodes.moveToTail(cachedNode);
+        break;
+
+      default:
+        /*
+         * Not linked yet (the write is still buffered) or no longer cached.
+         */
+        break;
+    }
+  }
+
+  /*
+   * A replaced node is in the write buffer twice (when added and when retired) and the two can be replayed in either order.
+   */
+  private void onWrite(CacheNode cachedNode)
+  {
+    if (cachedNode.retired)
+    {
+      unlink(cachedNode);
+      cachedNode.queue = CacheNode.DEAD;
+    }
+    else if (cachedNode.queue == CacheNode.PENDING)
+    {
+      sketch.increment(cachedNode.key.hashCode());
+      window.addTail(cachedNode);
+    }
+  }
+
+  private void evict()
+  {
+    while (window.size > maximumWindowSize)
+    {
+      CacheNode candidate = window.removeHead();
+      if ((window.size + probation.size + protectedNodes.size) < maximumSize)
+      {
+        probation.addTail(candidate);
+      }
+      else
+      {
+        NodeList victims = probation.size > 0 ? probation : protectedNodes;
+        CacheNode victim = victims.head;
+        if ((victim != null) && (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())))
+        {
+          victims.remove(victim);
+          evict(victim);
+          probation.addTail(candidate);
+        }
+        else
+        {
+          evict(candidate);
+        }
+      }
+    }
+  }
+
+  private void evict(CacheNode cachedNode)
+  {
+    cachedNode.queue = CacheNode.DEAD;
+    if (cachedNodes.remove(cachedNode.key, cachedNode))
+    {
+      statistics.recordEvictions(1);
+      statistics.recordEntries(-1);
+    }
+  }
+
+  private void unlink(CacheNode cachedNode)
+  {
+    switch (cachedNode.queue)
+    {
+      case CacheNode.WINDOW:
+        window.remove(cachedNode);
+        break;
+
+      case CacheNode.PROBATION:
+        probation.remove(cachedNode);
+        break;
+
+      case CacheNode.PROTECTED:
+        protectedNodes.remove(cachedNode);
+        break;
+
+      default:
+        break;
+    }
+  }
+
+  static class CacheNode
+  {
+    static final int PENDING = 0;
+
+    static final int WINDOW = 1;
+
+    static final int PROBATION = 2;
+
+    static final int PROTECTED = 3;
+
+    static final int DEAD = 4;
+
+    final Object key;
+
+    final Object routeNode;
+
+    final long generation;
+
+    volatile boolean retired;
+
+    /*
+     * The list this node is linked in. Only accessed while holding the eviction lock.
+     */
+    int queue = PENDING;
+
+    CacheNode previous;
+
+    CacheNode next;
+
+    CacheNode(Object key, Object routeNode, long generation)
+    {
+      this.key = key;
+      this.routeNode = routeNode;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * Doubly linked access ordered list of cache nodes. The head is the least recently used node.
+   */
+  static class NodeList
+  {
+    final int queue;
+
+    CacheNode head;
+
+    CacheNode tail;
+
+    int size;
+
+    NodeList(int queue)
+    {
+      this.queue = queue;
+    }
+
+    void addTail(CacheNode cachedNode)
+    {
+      cachedNode.queue = queue;
+      cachedNode.previous = tail;
+      cachedNode.next = null;
+      if (tail == null)
+      {
+        head = cachedNode;
+      }
+      else
+      {
+        tail.next = cachedNode;
+      }
+      tail = cachedNode;
+      ++size;
+    }
+
+    CacheNode removeHead()
+    {
+      CacheNode cachedNode = head;
+      remove(cachedNode);
+      return cachedNode;
+    }
+
+    void remove(CacheNode cachedNode)
+    {
+      if (cachedNode.previous == null)
+      {
+        head = cachedNode.next;
+      }
+      else
+      {
+        cachedNode.previous.next = cachedNode.next;
+      }
+
+      if (cachedNode.next == null)
+      {
+        tail = cachedNode.previous;
+      }
+      else
+      {
+        cachedNode.next.previous = cachedNode.previous;
+      }
+
+      cachedNode.previous = cachedNode.next = null;
+      cachedNode.queue = CacheNode.PENDING;
+      --size;
+    }
+
+    void moveToTail(CacheNode cachedNode)
+    {
+      if (cachedNode != tail)
+      {
+        remove(cachedNode);
+        addTail(cachedNode);
+      }
+    }
+  }
+
+  /**
+   * Count-min sketch with four 4 bit counters per key. Each long holds 16 counters and the four counters of a key are taken from
+   * the same long at different table positions. Once the number of increments reaches ten times the cache size all counters are
+   * halved.
+   */
+  static class FrequencySketch
+  {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(int maximumSize)
+    {
+      int tableSize = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+      table = new long[tableSize];
+      tableMask = tableSize - 1;
+      sampleSize = (int)Math.min(10L * maximumSize, Integer.MAX_VALUE);
+    }
+
+    int frequency(int hashCode)
+    {
+      int hash = spread(hashCode);
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++)
+      {
+        int index = indexOf(hash, i);
+        int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(int hashCode)
+    {
+      int hash = spread(hashCode);
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++)
+      {
+        int index = indexOf(hash, i);
+        int offset = (start + i) << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask)
+        {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+
+      if (added && (++additions >= sampleSize))
+      {
+        for (int i = 0; i < table.length; i++)
+        {
+          table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+      }
+    }
+
+    private int indexOf(int hash, int depth)
+    {
+      long h = (hash + SEEDS[depth]) * SEEDS[depth];
+      h += h >>> 32;
+      return ((int)h) & tableMask;
+    }
+
+    private static int spread(int hashCode)
+    {
+      int h = hashCode * 0x9e3779b9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import java.util.regex.Pattern;
+
+import static org.baswell.routes.RoutesMethods.*;
+
+/**
+ * Hand written scanners for the patterns in {@link RoutesMethods#typesToPatterns}. Each scanner accepts exactly the same
+ * values its pattern does and parses the value as it goes so a typed {} path segment or parameter is neither run through the
+ * regex engine nor parsed again when the route method is invoked.
+ *
+ * A value the pattern accepts but that is out of range for the type (ex. 999 for a byte) still matches but is left unparsed
+ * so the route method invocation fails the same way it always has.
+ */
+enum TypedValueScanner
+{
+  BYTE(BYTE_PATTERN, 3, 0, Byte.MIN_VALUE, Byte.MAX_VALUE),
+  SHORT(SHORT_PATTERN, 5, 0, Short.MIN_VALUE, Short.MAX_VALUE),
+  INTEGER(INTEGER_PATTERN, 10, 0, Integer.MIN_VALUE, Integer.MAX_VALUE),
+  LONG(LONG_PATTERN, 19, 0, Long.MIN_VALUE, Long.MAX_VALUE),
+  FLOAT(FLOAT_PATTERN, 8, 23, 0, 0),
+  DOUBLE(DOUBLE_PATTERN, 15, 46, 0, 0),
+  BOOLEAN(BOOLEAN_PATTERN, 0, 0, 0, 0),
+  STRING(STRING_PATTERN, 0, 0, 0, 0);
+
+  final String pattern;
+
+  private final int maxIntegerDigits;
+
+  private final int maxFractionDigits;
+
+  private final long minValue;
+
+  private final long maxValue;
+
+  TypedValueScanner(String pattern, int maxIntegerDigits, int maxFractionDigits, long minValue, long maxValue)
+  {
+    this.pattern = pattern;
+    this.maxIntegerDigits = maxIntegerDigits;
+    this.maxFractionDigits = maxFractionDigits;
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+  }
+
+  /**
+   * @return The scanner that accepts the same values as the given pattern or null if there is none.
+   */
+  static TypedValueScanner forPattern(Pattern pattern)
+  {
+    if ((pattern != null) && ((pattern.flags() & ~Pattern.DOTALL) == 0))
+    {
+      for (TypedValueScanner scanner : values())
+      {
+        if (scanner.pattern.equals(pattern.pattern()))
+        {
+          return ((scanner != STRING) || (pattern.flags() == Pattern.DOTALL)) ? scanner : null;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param value The value to scan.
+   * @param parsedValues If not null the parsed value is stored here at the given index (float and double as raw bits).
+   * @param parsed If not null set to whether or not the value could be parsed at the given index.
+   * @param index
+   * @return True if the value matches this scanner's pattern.
+   */
+  boolean scan(String value, long[] parsedValues, boolean[] parsed, int index)
+  {
+    switch (this)
+    {
+      case STRING:
+        if (parsed != null)
+        {
+          parsed[index] = false;
+        }
+        return true;
+
+      case BOOLEAN:
+        boolean isTrue = equalsAsciiIgnoreCase(value, "true");
+        if (!isTrue && !equalsAsciiIgnoreCase(value, "false"))
+        {
+          return false;
+        }
+        else
+        {
+          if (parsed != null)
+          {
+            parsedValues[index] = isTrue ? 1 : 0;
+            parsed[index] = true;
+          }
+          return true;
+        }
+
+      case FLOAT:
+      case DOUBLE:
+        if (!scanDecimal(value))
+        {
+          return false;
+        }
+        else
+        {
+          if (parsed != null)
+          {
+            parsedValues[index] = this == FLOAT ? Float.floatToRawIntBits(Float.parseFloat(value)) : Double.doubleToRawLongBits(Double.parseDouble(value));
+            parsed[index] = true;
+          }
+          return true;
+        }
+
+      default:
+        return scanIntegral(value, parsedValues, parsed, index);
+    }
+  }
+
+  /**
+   * @return The boxed form of a value parsed by {@link #scan(String, long[], boolean[], int)}.
+   */
+  Object toObject(long parsedValue)
+  {
+    switch (this)
+    {
+      case BYTE:
+        return (byte)parsedValue;
+
+      case SHORT:
+        return (short)parsedValue;
+
+      case INTEGER:
+        return (int)parsedValue;
+
+      case LONG:
+        return parsedValue;
+
+      case FLOAT:
+        return Float.intBitsToFloat((int)parsedValue);
+
+      case DOUBLE:
+        return Double.longBitsToDouble(parsedValue);
+
+      case BOOLEAN:
+        return parsedValue != 0;
+
+      default:
+        return null;
+    }
+  }
+
+  private boolean scanIntegral(String value, long[] parsedValues, boolean[] parsed, int index)
+  {
+    int length = value.length();
+    int i = 0;
+    boolean negative = (length > 0) && (value.charAt(0) == '-');
+    if (negative)
+    {
+      ++i;
+    }
+
+    int digits = length - i;
+    if ((digits < 1) || (digits > maxIntegerDigits))
+    {
+      return false;
+    }
+
+    /*
+     * Accumulate negatively (like Long.parseLong) so Long.MIN_VALUE can be represented.
+     */
+    long result = 0;
+    boolean overflow = false;
+    for (; i < length; i++)
+    {
+      char c = value.charAt(i);
+      if ((c < '0') || (c > '9'))
+      {
+        return false;
+      }
+
+      int digit = c - '0';
+      if (result < ((Long.MIN_VALUE + digit) / 10))
+      {
+        overflow = true;
+      }
+      else
+      {
+        result = (result * 10) - digit;
+      }
+    }
+
+    if (!negative)
+    {
+      if (result == Long.MIN_VALUE)
+      {
+        overflow = true;
+      }
+      result = -result;
+    }
+
+    if (parsed != null)
+    {
+      parsed[index] = !overflow && (result >= minValue) && (result <= maxValue);
+      parsedValues[index] = result;
+    }
+    return true;
+  }
+
+  private boolean scanDecimal(String value)
+  {
+    int length = value.length();
+    int i = ((length > 0) && (value.charAt(0) == '-')) ? 1 : 0;
+
+    int integerStart = i;
+    while ((i < length) && isDigit(value.charAt(i)))
+    {
+      ++i;
+    }
+
+    int integerDigits = i - integerStart;
+    if ((integerDigits < 1) || (integerDigits > maxIntegerDigits))
+    {
+      return false;
+    }
+    else if (i == length)
+    {
+      return true;
+    }
+    else if (value.charAt(i++) != '.')
+    {
+      return false;
+    }
+
+    int fractionStart = i;
+    while ((i < length) && isDigit(value.charAt(i)))
+    {
+      ++i;
+    }
+
+    int fractionDigits = i - fractionStart;
+    return (i == length) && (fractionDigits >= 1) && (fractionDigits <= maxFractionDigits);
+  }
+
+  private static boolean isDigit(char c)
+  {
+    return (c >= '0') && (c <= '9');
+  }
+
+  /*
+   * The boolean pattern uses (t|T) style alternatives so only ASCII case differences are allowed (unlike String.equalsIgnoreCase).
+   */
+  private static boolean equalsAsciiIgnoreCase(String value, String lowerCase)
+  {
+    if (value.length() != lowerCase.length())
+    {
+      return false;
+    }
+
+    for (int i = 0; i < value.length(); i++)
+    {
+      if ((value.charAt(i) | 0x20) != lowerCase.charAt(i))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -52,6 +52,30 @@ public class BasicRoutesTest extends EndToEndTest
     invoke(new TestHttpServletRequest("GET", "/test", "/test/60"), "getIntegerTest");
   }
   
+  @Test
+  public void testMultiSegments() throws IOException, ServletException
+  {
+    invoke(new TestHttpServletRequest("GET", "/test", "/test/files/raw/7"), "getRawFile");
+    invoke(new TestHttpServletRequest("GET", "/test", "/test/files/a/b/c/raw/42"), "getRawFile");
+    assertNotFound(new TestHttpServletRequest("GET", "/test", "/test/files/a/b/c/raw/x"));
+  }
+
+  @Test
+  public void testPathValueOutOfRange() throws IOException, ServletException
+  {
+    initializeRequest(new TestHttpServletRequest("GET", "/test", "/test/9999999999"));
+    assertNotNull(find());
+    try
+    {
+      invoke();
+      fail();
+    }
+    catch (RoutesException e)
+    {
+      assertTrue(e.getCause() instanceof NumberFormatException);
+    }
+  }
+
   @Test
   public void testRedirectTo() throws IOException, ServletException
   {
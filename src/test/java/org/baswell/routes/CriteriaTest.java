@@ -128,6 +128,38 @@ public class CriteriaTest
     assertFalse(Criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), urlPath, requestParameters));
   }
 
+  @Test
+  public void testMultipleMulti()
+  {
+    List<CriterionForPathSegment> pathCriteria = createPathCriteria(Arrays.asList(RequestPathSegmentCrierionType.FIXED, RequestPathSegmentCrierionType.MULTI, RequestPathSegmentCrierionType.FIXED, RequestPathSegmentCrierionType.MULTI, RequestPathSegmentCrierionType.PATTERN),
+                                                                    Arrays.asList("files", "**", "raw", "**", INTEGER_PATTERN));
+
+    Criteria criteria = new Criteria(pathCriteria, null, getRouteConfiguration, new RoutesConfiguration());
+    RequestParameters requestParameters = getRequestParameters();
+
+    assertTrue(criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/files/raw/1"), requestParameters));
+    assertTrue(criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/files/a/raw/b/raw/c/1"), requestParameters));
+    assertFalse(criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/files/a/b/c/1"), requestParameters));
+    assertFalse(criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/files/raw/1/a"), requestParameters));
+
+    List<String> segments = new ArrayList<String>();
+    segments.add("files");
+    for (int i = 0; i < 5000; i++)
+    {
+      segments.add("raw");
+    }
+    segments.add("x");
+
+    MatchContext context = MatchContext.get();
+    assertFalse(criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath(segments), requestParameters, context));
+
+    segments.set(segments.size() - 1, "42");
+    assertTrue(criteria.matches(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath(segments), requestParameters, context));
+    assertEquals(0, context.segmentIndexes[0]);
+    assertEquals(1, context.segmentIndexes[2]);
+    assertEquals(5001, context.segmentIndexes[4]);
+  }
+
   
   List<CriterionForPathSegment> createPathCriteria(List<RequestPathSegmentCrierionType> types, List<String> values)
   {
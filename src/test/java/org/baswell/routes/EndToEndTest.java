@@ -120,7 +120,7 @@ abstract public class EndToEndTest
     assertNotNull("No route path found for: " + path, node);
     try
     {
-      pipeline.invoke(node.routeNode, servletRequest, servletResponse, httpMethod, requestedMediaType, path, parameters, requestContent, node.pathMatchers, node.parameterMatchers);
+      pipeline.invoke(node, servletRequest, servletResponse, httpMethod, requestedMediaType, path, parameters, requestContent);
       servletResponse.writer.close();
     }
     catch (RouteInstanceBorrowException e)
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PathPatternsTest
+{
+  static final List<String> REGEXES = Arrays.asList("/api/.*", "^/routes/.*$", "/health", ".*\\.html$", ".*\\.jsp", ".*\\.min\\.js", "/static/.*\\.css",
+    "/img/[a-z]+\\.png", "(?i)/ADMIN/.*", "/(a+)/\\1", "\\\\.*", "/files/\\Q.*\\E");
+
+  static final List<String> PATHS = Arrays.asList("", "/", "/api", "/api/", "/api/orders", "/routes/", "/routes", "/health", "/health/", "/healthz",
+    "/index.html", "/a/b/page.html", ".html", "/index.htm", "/x.jsp", "/app.min.js", "/app.js", "/static/site.css", "/static/", "/img/logo.png",
+    "/img/Logo.png", "/admin/users", "/Admin/", "/aa/aa", "/aa/a", "\\foo", "/files/.*", "/files/x", "/api/a\nb", "/a\n.html");
+
+  @Test
+  public void testMatchesIndividualPatterns()
+  {
+    List<Pattern> patterns = new ArrayList<Pattern>();
+    for (String regex : REGEXES)
+    {
+      patterns.add(Pattern.compile(regex));
+    }
+    PathPatterns pathPatterns = new PathPatterns(REGEXES);
+
+    for (String contextPath : Arrays.asList("", "/ctx"))
+    {
+      for (String path : PATHS)
+      {
+        boolean expected = false;
+        for (Pattern pattern : patterns)
+        {
+          expected |= pattern.matcher(path).matches();
+        }
+        assertEquals(contextPath + path, expected, pathPatterns.matches(contextPath + path, contextPath.length()));
+      }
+    }
+  }
+
+  @Test
+  public void testLiterals()
+  {
+    assertEquals("/api/", PathPatterns.toLiteral("/api/"));
+    assertEquals(".html", PathPatterns.toLiteral("\\.html"));
+    assertNull(PathPatterns.toLiteral("/api/\\d"));
+    assertNull(PathPatterns.toLiteral("/api/[0-9]"));
+    assertTrue(PathPatterns.isEscaped("\\.*", 1));
+    assertFalse(PathPatterns.isEscaped("\\\\.*", 2));
+    assertTrue(PathPatterns.hasBackReference("/(a+)/\\1"));
+    assertFalse(PathPatterns.hasBackReference("/\\\\1"));
+  }
+}
@@ -0,0 +1,80 @@
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RequestParametersTest
+{
+  @Test
+  public void testReadsFromParameterMap()
+  {
+    RequestParameters parameters = new RequestParameters(parameterMap());
+
+    assertEquals(2, parameters.size());
+    assertEquals("1", parameters.get("a"));
+    assertEquals(Arrays.asList("2", "3"), parameters.getValues("b"));
+    assertEquals(2, parameters.size("b"));
+    assertEquals(0, parameters.size("c"));
+    assertTrue(parameters.getValuesView("c").isEmpty());
+    assertEquals("a=1&b=2&b=3", parameters.toString());
+  }
+
+  @Test
+  public void testModificationsDoNotChangeParameterMap()
+  {
+    Map<String, String[]> parameterMap = parameterMap();
+    RequestParameters parameters = new RequestParameters(parameterMap);
+
+    parameters.put("b", "4");
+    parameters.remove("a");
+    parameters.set("c", Arrays.asList("5"));
+
+    assertEquals(Arrays.asList("2", "3", "4"), parameters.getValues("b"));
+    assertFalse(parameters.contains("a"));
+    assertEquals("5", parameters.get("c"));
+
+    assertEquals(2, parameterMap.size());
+    assertEquals(Arrays.asList("1"), Arrays.asList(parameterMap.get("a")));
+    assertEquals(Arrays.asList("2", "3"), Arrays.asList(parameterMap.get("b")));
+    assertEquals("a=1&b=2&b=3", parameters.toString());
+  }
+
+  @Test
+  public void testParameterMapCopied()
+  {
+    Map<String, String[]> parameterMap = parameterMap();
+    RequestParameters parameters = new RequestParameters(parameterMap);
+
+    parameterMap.put("c", new String[]{"4"});
+    parameterMap.get("a")[0] = "5";
+
+    assertFalse(parameters.contains("c"));
+    assertEquals("1", parameters.get("a"));
+    assertEquals("a=1&b=2&b=3", parameters.toString());
+  }
+
+  @Test
+  public void testQueryString()
+  {
+    RequestParameters parameters = new RequestParameters("a=1&b=2&b=3&c");
+
+    assertEquals(Arrays.asList("2", "3"), parameters.getValues("b"));
+    assertFalse(parameters.contains("c"));
+    parameters.put("d", Arrays.asList("4", "5"));
+    assertEquals(Arrays.asList("4", "5"), parameters.getValues("d"));
+    assertEquals("a=1&b=2&b=3&c", parameters.toString());
+  }
+
+  static Map<String, String[]> parameterMap()
+  {
+    Map<String, String[]> parameterMap = new LinkedHashMap<String, String[]>();
+    parameterMap.put("a", new String[]{"1"});
+    parameterMap.put("b", new String[]{"2", "3"});
+    return parameterMap;
+  }
+}
@@ -18,6 +18,7 @@ package org.baswell.routes;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -60,4 +61,63 @@ public class RequestPathTest
     assertTrue(path.startsWith(""));
 
   }
+
+  @Test
+  public void testSegmentsMatchFullDecode()
+  {
+    for (String url : Arrays.asList("", "/", "/a", "a", "/a/", "/a//b", "/a//", "/a/b%20c/d", "/a+b/c", "/a%2Fb/c", "/a%2fb", "/a/%20", "/a/b ", " /a",
+                                    "/%C3%A9t%C3%A9/x", "/a/b%25c", "/report.pdf", "/files/a%2Eb.txt", "/a%2Fb%25c", "/a%2F%2Bb+c"))
+    {
+      RequestPath path = new RequestPath(url);
+      List<String> expected = RequestPath.parseUrlSegments(url);
+      assertEquals(url, expected.size(), path.size());
+      for (int i = 0; i < expected.size(); i++)
+      {
+        assertTrue(url, path.segmentEquals(i, expected.get(i), false));
+        assertTrue(url, path.segmentEquals(i, expected.get(i).toUpperCase(), true));
+        assertEquals(url, expected.get(i), path.get(i));
+      }
+      assertTrue(url, path.equals(expected));
+      assertEquals(url, new RequestPath(expected).toString(), path.toString());
+      assertEquals(url, new RequestPath(expected), path);
+    }
+
+    RequestPath path = new RequestPath("/a/b%20c/d");
+    assertFalse(path.segmentEquals(0, "ab", false));
+    assertFalse(path.segmentEquals(0, "A", false));
+    assertEquals("b c", path.pop().get(0));
+    assertEquals("/d", path.pop(2).toString());
+    assertEquals(0, path.pop(3).size());
+    assertEquals("report.pdf", new RequestPath("/files/report.pdf").getFileName());
+  }
+
+  @Test
+  public void testHashAndCompareInPlace()
+  {
+    for (String url : Arrays.asList("", "/", "/a", "/a//b", "/a/b%20c/d", "/a+b/c", "/a%2Fb/c", "/Orders/Summary", "/%C3%A9t%C3%A9/x"))
+    {
+      RequestPath path = new RequestPath(url);
+      String pathString = new RequestPath(RequestPath.parseUrlSegments(url)).toString();
+      assertEquals(url, pathString.hashCode(), path.pathHashCode(false));
+      assertEquals(url, RoutesMethods.foldCase(pathString).hashCode(), path.pathHashCode(true));
+      assertTrue(url, path.pathEquals(pathString, false));
+      assertTrue(url, path.pathEquals(pathString.toUpperCase(), true));
+      assertFalse(url, path.pathEquals(pathString + "/x", false));
+
+      RequestPath materialized = new RequestPath(url);
+      for (int i = 0; i < path.size(); i++)
+      {
+        assertEquals(url, materialized.get(i).hashCode(), path.segmentHashCode(i));
+        assertTrue(url, path.segmentEquals(i, materialized, i));
+        assertTrue(url, materialized.segmentEquals(i, path, i));
+      }
+    }
+
+    RequestPath path = new RequestPath("/orders/summary");
+    assertFalse(path.pathEquals("/orders", false));
+    assertFalse(path.pathEquals("/orders/summar", false));
+    assertFalse(path.pathEquals("/Orders/summary", false));
+    assertFalse(path.pathEquals("orders/summary", false));
+    assertFalse(path.segmentEquals(1, new RequestPath("/summary/orders"), 1));
+  }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RouteAnalysisTest
+{
+  @Test
+  public void testCanOverlap()
+  {
+    List<RouteNode> routeNodes = buildRouteNodes(false);
+    assertFalse(canOverlap(routeNodes, "getOrdersSummary", "getOrder", false));
+    assertTrue(canOverlap(routeNodes, "getOrdersSummary", "getOrderByName", false));
+    assertTrue(canOverlap(routeNodes, "getOrder", "getOrderByName", false));
+    assertFalse(canOverlap(routeNodes, "getOrder", "getUser", false));
+    assertFalse(canOverlap(routeNodes, "getOrder", "getOrderItems", false));
+    assertFalse(canOverlap(routeNodes, "getOrder", "postOrder", false));
+    assertFalse(canOverlap(routeNodes, "getReportPdf", "getReportJson", false));
+    assertTrue(canOverlap(routeNodes, "getReportPdf", "getReportAny", false));
+    assertTrue(canOverlap(routeNodes, "getFiles", "getRawFile", false));
+    assertFalse(canOverlap(routeNodes, "getFiles", "getOrder", false));
+    assertFalse(canOverlap(routeNodes, "getFiles", "getIndex", false));
+    assertTrue(canOverlap(routeNodes, "getAnything", "getOrderItems", false));
+    assertFalse(canOverlap(routeNodes, "getStatic", "getFiles", false));
+
+    routeNodes = buildRouteNodes(true);
+    assertTrue(canOverlap(routeNodes, "getOrdersSummary", "getOrder", true));
+    assertFalse(canOverlap(routeNodes, "getOrder", "getUser", true));
+  }
+
+  @Test
+  public void testShadows()
+  {
+    List<RouteNode> routeNodes = buildRouteNodes(false);
+    assertTrue(shadows(routeNodes, "getFiles", "getRawFile"));
+    assertFalse(shadows(routeNodes, "getRawFile", "getFiles"));
+    assertTrue(shadows(routeNodes, "getOrder", "getOrder12"));
+    assertFalse(shadows(routeNodes, "getOrder12", "getOrder"));
+    assertFalse(shadows(routeNodes, "getOrder", "getOrderByName"));
+    assertTrue(shadows(routeNodes, "getReportAny", "getReportPdf"));
+    assertFalse(shadows(routeNodes, "getReportPdf", "getReportAny"));
+    assertFalse(shadows(routeNodes, "getOrder", "postOrder"));
+    assertFalse(shadows(routeNodes, "saveOrder", "postOrder"));
+    assertTrue(shadows(routeNodes, "getAnything", "getFiles"));
+    assertFalse(shadows(routeNodes, "getStatic", "getFiles"));
+  }
+
+  @Test
+  public void testShadowedRoutesPruned()
+  {
+    RoutingTable routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(AnalysisRoutes.class).build();
+    RoutingSnapshot snapshot = routingTable.getSnapshot();
+
+    int duplicates = 0;
+    for (RouteNode routeNode : snapshot.shadowedRouteNodes.keySet())
+    {
+      assertFalse(snapshot.searchOrder.contains(routeNode));
+      assertTrue(snapshot.routeNodes.indexOf(snapshot.shadowedRouteNodes.get(routeNode)) < snapshot.routeNodes.indexOf(routeNode));
+      if (routeNode.method.getName().startsWith("getDuplicate"))
+      {
+        ++duplicates;
+      }
+    }
+    assertEquals(1, duplicates);
+    assertEquals(snapshot.routeNodes.size(), snapshot.searchOrder.size() + snapshot.shadowedRouteNodes.size());
+  }
+
+  static boolean canOverlap(List<RouteNode> routeNodes, String methodName, String otherMethodName, boolean caseInsensitive)
+  {
+    boolean canOverlap = RouteAnalysis.canOverlap(find(routeNodes, methodName).criteria, find(routeNodes, otherMethodName).criteria, caseInsensitive);
+    assertEquals(canOverlap, RouteAnalysis.canOverlap(find(routeNodes, otherMethodName).criteria, find(routeNodes, methodName).criteria, caseInsensitive));
+    return canOverlap;
+  }
+
+  static boolean shadows(List<RouteNode> routeNodes, String methodName, String otherMethodName)
+  {
+    return RouteAnalysis.shadows(find(routeNodes, methodName).criteria, find(routeNodes, otherMethodName).criteria, false);
+  }
+
+  static List<RouteNode> buildRouteNodes(boolean caseInsensitive)
+  {
+    RoutesConfiguration routesConfiguration = new RoutesConfiguration();
+    routesConfiguration.caseInsensitive = caseInsensitive;
+    RoutingTable routingTable = new RoutingTable(routesConfiguration);
+    routingTable.add(AnalysisRoutes.class).build();
+    return new ArrayList<RouteNode>(routingTable.getRouteNodes());
+  }
+
+  static RouteNode find(List<RouteNode> routeNodes, String methodName)
+  {
+    for (RouteNode routeNode : routeNodes)
+    {
+      if (routeNode.method.getName().equals(methodName))
+      {
+        return routeNode;
+      }
+    }
+    throw new AssertionError(methodName);
+  }
+
+  public static class AnalysisRoutes
+  {
+    @Route("/")
+    public void getIndex()
+    {}
+
+    @Route("/api/orders/summary")
+    public void getOrdersSummary()
+    {}
+
+    @Route("/api/orders/12")
+    public void getOrder12()
+    {}
+
+    @Route("/api/orders/{}")
+    public void getOrder(int id)
+    {}
+
+    @Route("/api/orders/{[a-z]+}")
+    public void getOrderByName()
+    {}
+
+    @Route("/api/orders/{}/items")
+    public void getOrderItems(int id)
+    {}
+
+    @Route("/api/users/{}")
+    public void getUser(int id)
+    {}
+
+    @Route(value = "/api/orders/{}", respondsToMethods = HttpMethod.POST)
+    public void postOrder(int id)
+    {}
+
+    @Route(value = "/api/orders/{}?action=save", respondsToMethods = HttpMethod.POST)
+    public void saveOrder(int id)
+    {}
+
+    @Route(value = "/report", respondsToMediaRequests = MediaType.PDF)
+    public void getReportPdf()
+    {}
+
+    @Route(value = "/report", respondsToMediaRequests = MediaType.JSON)
+    public void getReportJson()
+    {}
+
+    @Route("/report")
+    public void getReportAny()
+    {}
+
+    @Route("/files/**")
+    public void getFiles()
+    {}
+
+    @Route("/files/**/raw/{}")
+    public void getRawFile(int id)
+    {}
+
+    @Route("/static/**/*")
+    public void getStatic()
+    {}
+
+    @Route("/**")
+    public void getAnything()
+    {}
+
+    @Route("/duplicate")
+    public void getDuplicateOne()
+    {}
+
+    @Route("/duplicate")
+    public void getDuplicateTwo()
+    {}
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RouteClassWatcherTest
+{
+  @Test
+  public void testFindChanged()
+  {
+    File classFile = RouteClassWatcher.getClassFile(WatchedRoutes.class);
+    assertNotNull(classFile);
+    assertTrue(classFile.exists());
+
+    long lastModified = classFile.lastModified();
+    RouteClassWatcher classWatcher = new RouteClassWatcher(null);
+    try
+    {
+      WatchedRoutes watchedRoutes = new WatchedRoutes();
+      List<Object> routeObjects = Arrays.asList(WatchedRoutes.class, watchedRoutes, RouteClassWatcherTest.class);
+      assertTrue(classWatcher.findChanged(routeObjects).isEmpty());
+      assertTrue(classWatcher.findChanged(routeObjects).isEmpty());
+
+      assertTrue(classFile.setLastModified(lastModified - 10000));
+      assertEquals(Arrays.asList(WatchedRoutes.class, watchedRoutes), classWatcher.findChanged(routeObjects));
+      assertTrue(classWatcher.findChanged(routeObjects).isEmpty());
+    }
+    finally
+    {
+      classFile.setLastModified(lastModified);
+      classWatcher.close();
+    }
+  }
+
+  @Test
+  public void testClassFileNotOnFileSystem()
+  {
+    assertNull(RouteClassWatcher.getClassFile(String.class));
+  }
+
+  public static class WatchedRoutes
+  {
+    @Route("/watched")
+    public void getWatched()
+    {}
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.baswell.routes.RouteTrie.PatternEdge;
+import static org.junit.Assert.*;
+
+public class RouteTrieTest
+{
+  @Test
+  public void testLiteralPrefilter()
+  {
+    assertEquals("v", PatternEdge.getLiteralPrefix("v\\d+"));
+    assertEquals("", PatternEdge.getLiteralSuffix("v\\d+"));
+    assertEquals("img-", PatternEdge.getLiteralPrefix("img-(.*)"));
+    assertEquals("im", PatternEdge.getLiteralPrefix("img?-(.*)"));
+    assertEquals("", PatternEdge.getLiteralPrefix("(-?)\\d\\d?"));
+    assertEquals("png", PatternEdge.getLiteralSuffix("(.*)\\.png"));
+    assertEquals("", PatternEdge.getLiteralSuffix("(.*)\\x41"));
+    assertEquals("", PatternEdge.getLiteralSuffix("\\d{1,3}"));
+
+    assertFalse(PatternEdge.hasPrefilter(Pattern.compile("a|b")));
+    assertFalse(PatternEdge.hasPrefilter(Pattern.compile("(?i)abc")));
+    assertFalse(PatternEdge.hasPrefilter(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)));
+    assertTrue(PatternEdge.hasPrefilter(Pattern.compile("abc", Pattern.DOTALL)));
+  }
+
+  @Test
+  public void testPatternEdgeMatches()
+  {
+    assertPatternEdge("v\\d+", "v1", "v", "x1", "v1x");
+    assertPatternEdge("(.*)\\.png", "a.png", ".png", "a.gif", "png");
+    assertPatternEdge("aa", "aa", null, "a", "aaa");
+    assertPatternEdge(".*", "", "anything", null, null);
+    assertPatternEdge("(-?)\\d\\d?", "-1", "12", "123", "a");
+  }
+
+  void assertPatternEdge(String regex, String match1, String match2, String noMatch1, String noMatch2)
+  {
+    PatternEdge patternEdge = new PatternEdge(Pattern.compile(regex, Pattern.DOTALL));
+    for (String segment : new String[] {match1, match2, noMatch1, noMatch2})
+    {
+      if (segment != null)
+      {
+        boolean expected = Pattern.compile(regex, Pattern.DOTALL).matcher(segment).matches();
+        assertEquals(regex + " " + segment, expected, patternEdge.matches(segment, MatchContext.get()));
+      }
+    }
+    assertTrue(patternEdge.matches(match1, MatchContext.get()));
+    if (noMatch1 != null)
+    {
+      assertFalse(patternEdge.matches(noMatch1, MatchContext.get()));
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RoutesCacheKeyTest
+{
+  static final List<String> NAMES = Arrays.asList("action");
+
+  @Test
+  public void testProbeMatchesKey()
+  {
+    Map<RoutesCacheKey, String> cache = new HashMap<RoutesCacheKey, String>();
+    cache.put(new RoutesCacheKey(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/orders/1"), null, NAMES), "order");
+
+    assertEquals("order", cache.get(RoutesCacheKey.probe(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/orders/1"), null, NAMES)));
+    assertEquals("order", cache.get(RoutesCacheKey.probe(HttpMethod.GET, new RequestedMediaType("text/html;q=0.9"), new RequestPath("/orders/1"), null, NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.POST, new RequestedMediaType("text/html"), new RequestPath("/orders/1"), null, NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.GET, new RequestedMediaType("application/json"), new RequestPath("/orders/1"), null, NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/orders/2"), null, NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/orders/1/items"), null, NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.GET, new RequestedMediaType("text/html"), new RequestPath("/orders/1"), new RequestParameters("action=save"), NAMES)));
+  }
+
+  @Test
+  public void testProbeReused()
+  {
+    RoutesCacheKey probe = RoutesCacheKey.probe(HttpMethod.GET, null, new RequestPath("/a"), null, NAMES);
+    assertSame(probe, RoutesCacheKey.probe(HttpMethod.GET, null, new RequestPath("/b"), null, NAMES));
+    assertEquals(new RoutesCacheKey(HttpMethod.GET, null, new RequestPath("/b"), null, NAMES), probe);
+    assertEquals("GET:*/*:/b:action=[]", probe.toString());
+  }
+
+  @Test
+  public void testOnlyRoutingParameters()
+  {
+    Map<RoutesCacheKey, String> cache = new HashMap<RoutesCacheKey, String>();
+    RequestParameters parameters = new RequestParameters("action=save&page=1");
+    cache.put(new RoutesCacheKey(HttpMethod.POST, null, new RequestPath("/orders"), parameters, NAMES), "save");
+    parameters.remove("action");
+    parameters.put("action", "delete");
+
+    assertEquals("save", cache.get(RoutesCacheKey.probe(HttpMethod.POST, null, new RequestPath("/orders"), new RequestParameters("action=save"), NAMES)));
+    assertEquals("save", cache.get(RoutesCacheKey.probe(HttpMethod.POST, null, new RequestPath("/orders"), new RequestParameters("page=2&action=save&utm_source=x"), NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.POST, null, new RequestPath("/orders"), new RequestParameters("action=delete"), NAMES)));
+    assertNull(cache.get(RoutesCacheKey.probe(HttpMethod.POST, null, new RequestPath("/orders"), new RequestParameters("page=1"), NAMES)));
+  }
+
+  @Test
+  public void testRoutingParameterNames()
+  {
+    RoutingTable routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(RoutingTableFindTest.FindRoutes.class).build();
+    assertEquals(Arrays.asList("action"), routingTable.getSnapshot().routingParameterNames);
+  }
+
+  @Test
+  public void testOverriddenSimpleCacheKey()
+  {
+    assertFalse(SimpleRoutesCache.overridesGetKey(SimpleRoutesCache.class));
+
+    SimpleRoutesCache routesCache = new SimpleRoutesCache(16, 1000, false)
+    {
+      @Override
+      protected String getKey(HttpMethod method, RequestedMediaType requestedMediaType, RequestPath path, RequestParameters parameters)
+      {
+        return path.get(0);
+      }
+    };
+    assertTrue(SimpleRoutesCache.overridesGetKey(routesCache.getClass()));
+
+    routesCache.put("orders", HttpMethod.GET, null, new RequestPath("/orders/1"), null);
+    assertEquals("orders", routesCache.get(HttpMethod.GET, null, new RequestPath("/orders/2"), null));
+    assertNull(routesCache.get(HttpMethod.GET, null, new RequestPath("/items/1"), null));
+  }
+}
@@ -0,0 +1,88 @@
+package org.baswell.routes;
+
+import org.baswell.routes.testroutes.BaseRoutes;
+import org.baswell.routes.utils.http.TestHttpServletRequest;
+import org.baswell.routes.utils.http.TestHttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RoutesEngineCacheTest
+{
+  RoutingTable routingTable;
+
+  RoutesEngine routesEngine;
+
+  @Before
+  public void setupRoutesEngine()
+  {
+    RoutesConfiguration routesConfiguration = new RoutesConfiguration();
+    routesConfiguration.routesCache = new TinyLfuRoutesCache(16, true);
+    routingTable = new RoutingTable(routesConfiguration);
+    routingTable.add(CachedRoutes.class).build();
+    routesEngine = new RoutesEngine(routingTable);
+  }
+
+  @Test
+  public void testCachedRequestsCountHits() throws IOException, ServletException
+  {
+    for (int i = 0; i < 3; i++)
+    {
+      assertEquals("getItem", process("/items/12"));
+    }
+
+    assertEquals(2, routingTable.getStatistics().getCacheHitCount());
+    for (RouteNode routeNode : routingTable.getRouteNodes())
+    {
+      assertEquals(routeNode.method.getName().equals("getItem") ? 3 : 0, routeNode.hits.sum());
+    }
+  }
+
+  @Test
+  public void testDefaultParametersNotCached() throws IOException, ServletException
+  {
+    assertEquals("getOrders", process("/orders", "page", "1"));
+    assertEquals("getOrders", process("/orders", "page", "1"));
+    assertEquals(1, routingTable.getStatistics().getCacheHitCount());
+
+    assertEquals("getSortedOrders", process("/orders", "page", "1", "sort", "name"));
+    assertEquals("getSortedOrders", process("/orders", "page", "1", "sort", "name"));
+    assertEquals("getOrders", process("/orders", "page", "1"));
+    assertEquals(3, routingTable.getStatistics().getCacheHitCount());
+  }
+
+  String process(String requestUri, String... parameters) throws IOException, ServletException
+  {
+    TestHttpServletRequest servletRequest = new TestHttpServletRequest("GET", "/", requestUri, parameters);
+    assertTrue(routesEngine.process(servletRequest, new TestHttpServletResponse()));
+    Set<String> methodsCalled = (Set<String>)servletRequest.getAttribute("methodsCalled");
+    assertEquals(1, methodsCalled.size());
+    return methodsCalled.iterator().next();
+  }
+
+  public static class CachedRoutes extends BaseRoutes
+  {
+    @Route("/items/{}")
+    public void getItem(int id)
+    {
+      methodsCalled.add("getItem");
+    }
+
+    @Route("/orders?sort=name&page={}")
+    public void getSortedOrders(int page)
+    {
+      methodsCalled.add("getSortedOrders");
+    }
+
+    @Route(value = "/orders?page={}", defaultParameters = "sort=name")
+    public void getOrders(int page)
+    {
+      methodsCalled.add("getOrders");
+    }
+  }
+}
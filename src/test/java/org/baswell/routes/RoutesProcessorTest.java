@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.baswell.routes.TestMethods.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class RoutesProcessorTest
+{
+  static final String ROUTES_SOURCE =
+    "package processed;\n" +
+    "import org.baswell.routes.*;\n" +
+    "import java.util.List;\n" +
+    "public class OrderRoutes extends BaseRoutes\n" +
+    "{\n" +
+    "  public boolean checked;\n" +
+    "  protected void markChecked()\n" +
+    "  { checked = true; }\n" +
+    "  @Route(\"/orders/{}\")\n" +
+    "  public String getOrder(int id)\n" +
+    "  { return \"order\" + id; }\n" +
+    "  @Route(\"/orders/{}/fail\")\n" +
+    "  public void getFailure(int id)\n" +
+    "  { throw new IllegalStateException(\"failed\"); }\n" +
+    "  public void helper(List<String> values, String[] names, Hidden hidden)\n" +
+    "  {}\n" +
+    "  private static class Hidden\n" +
+    "  {}\n" +
+    "  private static class HiddenRoutes\n" +
+    "  {\n" +
+    "    @Route(\"/hidden\")\n" +
+    "    public void getHidden()\n" +
+    "    {}\n" +
+    "  }\n" +
+    "}\n" +
+    "class BaseRoutes\n" +
+    "{\n" +
+    "  @BeforeRoute\n" +
+    "  public void check()\n" +
+    "  { markChecked(); }\n" +
+    "  protected void markChecked()\n" +
+    "  {}\n" +
+    "}\n";
+
+  File directory;
+
+  ClassLoader classLoader;
+
+  @Before
+  public void compileRoutes() throws IOException
+  {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assumeNotNull(compiler);
+
+    directory = File.createTempFile("routes-processor", "");
+    assertTrue(directory.delete() && directory.mkdirs());
+    File packageDirectory = new File(directory, "processed");
+    assertTrue(packageDirectory.mkdirs());
+
+    File sourceFile = new File(packageDirectory, "OrderRoutes.java");
+    FileWriter writer = new FileWriter(sourceFile);
+    writer.write(ROUTES_SOURCE);
+    writer.close();
+
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    int result = compiler.run(null, null, errors, "-classpath", System.getProperty("java.class.path"), "-processor", RoutesProcessor.class.getName(),
+                              "-s", directory.getPath(), "-d", directory.getPath(), sourceFile.getPath());
+    assertEquals(errors.toString(), 0, result);
+
+    classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()}, getClass().getClassLoader());
+  }
+
+  @After
+  public void deleteRoutes()
+  {
+    if (directory != null)
+    {
+      delete(directory);
+    }
+  }
+
+  @Test
+  public void testGeneratedInvoker() throws Exception
+  {
+    Class routesClass = classLoader.loadClass("processed.OrderRoutes");
+    Map<String, DirectMethod> directMethods = DirectMethod.forClass(routesClass);
+    assertNotNull(directMethods.get("getOrder(int)"));
+    assertNotNull(directMethods.get("getFailure(int)"));
+    assertNotNull(directMethods.get("check()"));
+    assertNull(directMethods.get("helper(java.util.List,java.lang.String[],processed.OrderRoutes.Hidden)"));
+    assertNull(directMethods.get("toString()"));
+
+    assertEquals(DirectMethod.getSignature(routesClass.getMethod("getOrder", int.class)), "getOrder(int)");
+    assertTrue(DirectMethod.forClass(classLoader.loadClass("processed.OrderRoutes$HiddenRoutes")).isEmpty());
+  }
+
+  @Test
+  public void testRoutesCalledThroughInvoker() throws Exception
+  {
+    Class routesClass = classLoader.loadClass("processed.OrderRoutes");
+    RoutingTable routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(routesClass).build();
+
+    for (RouteNode routeNode : routingTable.getRouteNodes())
+    {
+      assertNotNull(routeNode.method.toString(), routeNode.directMethod);
+      assertEquals(1, routeNode.beforeRouteNodes.size());
+      assertNotNull(routeNode.beforeRouteNodes.get(0).directMethod);
+    }
+
+    Object routeInstance = routesClass.newInstance();
+    MatchedRoute matchedRoute = find(routingTable, "/orders/12");
+    RouteNode routeNode = matchedRoute.routeNode;
+    MethodInvoker methodInvoker = new MethodInvoker(null, null, HttpMethod.GET, new RequestPath("/orders/12"), getRequestParameters(), null, null, routeNode.routeConfiguration);
+
+    BeforeRouteNode beforeNode = routeNode.beforeRouteNodes.get(0);
+    assertNull(methodInvoker.invoke(routeInstance, beforeNode.method, beforeNode.directMethod, beforeNode.parameters, matchedRoute));
+    assertEquals(true, routesClass.getField("checked").get(routeInstance));
+    assertEquals("order12", methodInvoker.invoke(routeInstance, routeNode.method, routeNode.directMethod, routeNode.parameters, matchedRoute));
+
+    matchedRoute = find(routingTable, "/orders/12/fail");
+    routeNode = matchedRoute.routeNode;
+    try
+    {
+      methodInvoker.invoke(routeInstance, routeNode.method, routeNode.directMethod, routeNode.parameters, matchedRoute);
+      fail();
+    }
+    catch (InvocationTargetException e)
+    {
+      assertTrue(e.getTargetException() instanceof IllegalStateException);
+    }
+
+    try
+    {
+      routeNode.directMethod.invoke(routeInstance, new Object[]{null});
+      fail();
+    }
+    catch (NullPointerException e)
+    {}
+  }
+
+  @Test
+  public void testSignaturesMatchReflection() throws Exception
+  {
+    Class routesClass = classLoader.loadClass("processed.OrderRoutes");
+    Class invokerClass = classLoader.loadClass("processed.OrderRoutes" + DirectMethod.INVOKER_SUFFIX);
+    List<String> signatures = Arrays.asList(((RouteMethodInvoker) invokerClass.newInstance()).getMethodSignatures());
+    for (String signature : signatures)
+    {
+      boolean found = false;
+      for (java.lang.reflect.Method method : routesClass.getMethods())
+      {
+        found |= DirectMethod.getSignature(method).equals(signature);
+      }
+      assertTrue(signature, found);
+    }
+  }
+
+  @Test
+  public void testTurkishLocale() throws Exception
+  {
+    Locale locale = Locale.getDefault();
+    try
+    {
+      Locale.setDefault(new Locale("tr"));
+      deleteRoutes();
+      compileRoutes();
+    }
+    finally
+    {
+      Locale.setDefault(locale);
+    }
+
+    Map<String, DirectMethod> directMethods = DirectMethod.forClass(classLoader.loadClass("processed.OrderRoutes"));
+    assertNotNull(directMethods.get("getOrder(int)"));
+    assertNotNull(directMethods.get("getFailure(int)"));
+  }
+
+  static MatchedRoute find(RoutingTable routingTable, String path)
+  {
+    RequestPath requestPath = new RequestPath(path);
+    return routingTable.find(requestPath, getRequestParameters(), HttpMethod.GET, new RequestedMediaType("text/html", requestPath, null));
+  }
+
+  static void delete(File file)
+  {
+    File[] files = file.listFiles();
+    if (files != null)
+    {
+      for (File child : files)
+      {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
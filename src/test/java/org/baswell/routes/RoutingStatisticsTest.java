@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.baswell.routes.RoutingTableFindTest.*;
+import static org.baswell.routes.TestMethods.*;
+import static org.junit.Assert.*;
+
+public class RoutingStatisticsTest
+{
+  RoutingTable routingTable;
+
+  @Test
+  public void testStatistics() throws Exception
+  {
+    RoutesConfiguration routesConfiguration = new RoutesConfiguration();
+    routesConfiguration.routesCache = new TinyLfuRoutesCache(16, false);
+    routesConfiguration.statisticsObjectName = "org.baswell.routes:type=RoutingStatistics,name=RoutingStatisticsTest";
+    routesConfiguration.timeLookups = true;
+    routingTable = new RoutingTable(routesConfiguration);
+    routingTable.add(FindRoutes.class).build();
+
+    try
+    {
+      assertNotNull(find(HttpMethod.GET, "/api/orders/summary"));
+      assertNotNull(find(HttpMethod.GET, "/api/orders/12"));
+      assertNull(find(HttpMethod.GET, "/unknown/path"));
+      assertNull(find(HttpMethod.GET, "/unknown/path"));
+
+      RoutingStatistics statistics = routingTable.getStatistics();
+      assertEquals(4, statistics.getLookupCount());
+      assertEquals(2, statistics.getMatchCount());
+      assertEquals(1, statistics.getNegativeCacheHitCount());
+      assertEquals(4, statistics.getTimedLookupCount());
+
+      long[] histogram = statistics.getRoutesScannedHistogram();
+      assertEquals(RoutingStatistics.HISTOGRAM_BUCKETS, histogram.length);
+      assertEquals(2, histogram[0]);
+      assertEquals(2, histogram[1]);
+
+      RequestPath requestPath = new RequestPath("/api/orders/12");
+      RequestedMediaType requestedMediaType = new RequestedMediaType("text/html", requestPath, null);
+      routesConfiguration.routesCache.get(HttpMethod.GET, requestedMediaType, requestPath, null);
+      routesConfiguration.routesCache.put(find(HttpMethod.GET, "/api/orders/12"), HttpMethod.GET, requestedMediaType, requestPath, null);
+      routesConfiguration.routesCache.get(HttpMethod.GET, requestedMediaType, requestPath, null);
+      assertEquals(1, statistics.getCacheHitCount());
+      assertEquals(1, statistics.getCacheMissCount());
+      assertEquals(1, statistics.getCacheEntryCount());
+      assertTrue(statistics.toJson().contains("\"cache\": {\"hits\": 1, \"misses\": 1"));
+
+      MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(routesConfiguration.statisticsObjectName);
+      assertEquals(5L, mbeanServer.getAttribute(objectName, "LookupCount"));
+      assertEquals(1L, mbeanServer.getAttribute(objectName, "CacheHitCount"));
+    }
+    finally
+    {
+      routingTable.shutdown();
+    }
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(routesConfiguration.statisticsObjectName)));
+
+    assertEquals(0, RoutingStatistics.getBucket(0));
+    assertEquals(1, RoutingStatistics.getBucket(1));
+    assertEquals(2, RoutingStatistics.getBucket(2));
+    assertEquals(3, RoutingStatistics.getBucket(4));
+    assertEquals(4, RoutingStatistics.getBucket(5));
+    assertEquals(7, RoutingStatistics.getBucket(64));
+    assertEquals(8, RoutingStatistics.getBucket(65));
+  }
+
+  MatchedRoute find(HttpMethod httpMethod, String path)
+  {
+    RequestPath requestPath = new RequestPath(path);
+    return routingTable.find(requestPath, getRequestParameters(), httpMethod, new RequestedMediaType("text/html", requestPath, null));
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.baswell.routes.RoutingTableFindTest.*;
+import static org.baswell.routes.TestMethods.*;
+import static org.junit.Assert.*;
+
+public class RoutingTableBuildTest
+{
+  RoutingTable routingTable;
+
+  @Test
+  public void testParallelBuildOrder()
+  {
+    Object[] routeObjects = {TieRoutesA.class, new TieRoutesB(), TieRoutesC.class, PluginRoutes.class, TieRoutesD.class};
+    routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(routeObjects).add(TieRoutesA.class).build();
+
+    assertEquals(TieRoutesA.class, find(HttpMethod.GET, "/tie").routeNode.method.getDeclaringClass());
+    assertEquals(TieRoutesA.class, find(HttpMethod.GET, "/tie/1").routeNode.method.getDeclaringClass());
+
+    List<Class> tieOrder = new ArrayList<Class>();
+    List<Class> tieByIdOrder = new ArrayList<Class>();
+    for (RouteNode routeNode : routingTable.getRouteNodes())
+    {
+      if (routeNode.method.getName().equals("getTie"))
+      {
+        tieOrder.add(routeNode.method.getDeclaringClass());
+      }
+      else if (routeNode.method.getName().equals("getTieById"))
+      {
+        tieByIdOrder.add(routeNode.method.getDeclaringClass());
+      }
+    }
+    List<Class> expectedOrder = Arrays.<Class>asList(TieRoutesA.class, TieRoutesB.class, TieRoutesC.class, TieRoutesD.class);
+    assertEquals(expectedOrder, tieOrder);
+    assertEquals(expectedOrder, tieByIdOrder);
+
+    routingTable.remove(TieRoutesA.class);
+    assertEquals(TieRoutesB.class, find(HttpMethod.GET, "/tie").routeNode.method.getDeclaringClass());
+    routingTable.add(TieRoutesA.class);
+    assertEquals(TieRoutesB.class, find(HttpMethod.GET, "/tie").routeNode.method.getDeclaringClass());
+  }
+
+  @Test
+  public void testParallelBuildFirstError()
+  {
+    routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(TieRoutesA.class, NoRoutes.class, TieRoutesB.class, OtherNoRoutes.class);
+    for (int i = 0; i < 10; i++)
+    {
+      try
+      {
+        routingTable.build();
+        fail();
+      }
+      catch (RoutesException e)
+      {
+        assertTrue(e.getMessage(), e.getMessage().contains(NoRoutes.class.getName()));
+      }
+    }
+    assertFalse(routingTable.built);
+  }
+
+  MatchedRoute find(HttpMethod httpMethod, String path)
+  {
+    RequestPath requestPath = new RequestPath(path);
+    return routingTable.find(requestPath, getRequestParameters(), httpMethod, new RequestedMediaType("text/html", requestPath, null));
+  }
+
+  @Routes(routeUnannotatedPublicMethods = false)
+  public static class OtherNoRoutes
+  {
+    public void notARoute()
+    {}
+  }
+
+  public static class TieRoutesA
+  {
+    @Route("/tie")
+    public void getTie()
+    {}
+
+    @Route("/tie/{}")
+    public void getTieById(int id)
+    {}
+  }
+
+  public static class TieRoutesB
+  {
+    @Route("/tie")
+    public void getTie()
+    {}
+
+    @Route("/tie/{}")
+    public void getTieById(int id)
+    {}
+  }
+
+  public static class TieRoutesC
+  {
+    @Route("/tie")
+    public void getTie()
+    {}
+
+    @Route("/tie/{}")
+    public void getTieById(int id)
+    {}
+  }
+
+  public static class TieRoutesD
+  {
+    @Route("/tie")
+    public void getTie()
+    {}
+
+    @Route("/tie/{}")
+    public void getTieById(int id)
+    {}
+  }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.baswell.routes.TestMethods.*;
+import static org.junit.Assert.*;
+
+public class RoutingTableFindTest
+{
+  static final List<String> PATHS = Arrays.asList("/", "/api", "/api/orders", "/api/orders/summary", "/api/orders/12", "/api/orders/12/items",
+                                                  "/api/orders/abc", "/API/Orders/Summary", "/files/a/b/raw/7", "/files/raw/7", "/files/a/raw/x",
+                                                  "/files", "/files/one", "/static/css/site.css", "/report.pdf", "/report", "/unknown/path",
+                                                  "/api/v2/status", "/api/x2/status", "/api/v/status");
+
+  RoutingTable routingTable;
+
+  @Before
+  public void setupRoutingTable()
+  {
+    routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(FindRoutes.class).build();
+  }
+
+  @Test
+  public void testCandidatesMatchLinearScan()
+  {
+    for (HttpMethod httpMethod : HttpMethod.values())
+    {
+      for (String path : PATHS)
+      {
+        assertSameRoute(httpMethod, path, "text/html");
+        assertSameRoute(httpMethod, path, "application/json");
+      }
+    }
+  }
+
+  @Test
+  public void testPriority()
+  {
+    assertEquals("getOrdersSummary", find(HttpMethod.GET, "/api/orders/summary").routeNode.method.getName());
+    assertEquals("getOrder", find(HttpMethod.GET, "/api/orders/12").routeNode.method.getName());
+    assertEquals("getOrderByName", find(HttpMethod.GET, "/api/orders/abc").routeNode.method.getName());
+    assertEquals("getFiles", find(HttpMethod.GET, "/files/a/raw/x").routeNode.method.getName());
+    assertNull(find(HttpMethod.GET, "/API/Orders/Summary"));
+    assertNull(find(HttpMethod.GET, "/unknown/path"));
+    assertEquals("getStatus", find(HttpMethod.GET, "/api/v2/status").routeNode.method.getName());
+    assertNull(find(HttpMethod.GET, "/api/x2/status"));
+  }
+
+  @Test
+  public void testMethodPartitions()
+  {
+    assertEquals("postOrder", find(HttpMethod.POST, "/api/orders").routeNode.method.getName());
+    assertEquals("postOrder", find(HttpMethod.PUT, "/api/orders").routeNode.method.getName());
+    assertNull(find(HttpMethod.GET, "/api/orders"));
+    assertNull(find(HttpMethod.POST, "/api/orders/12"));
+    assertNull(find(null, "/api/orders"));
+  }
+
+  @Test
+  public void testParameterRequirements()
+  {
+    RequestParameters[] parameters = {getRequestParameters(), getRequestParameters("action", "save"), getRequestParameters("action", "delete"),
+                                      getRequestParameters("action", "SAVE"), getRequestParameters("action", "list"), getRequestParameters("other", "1")};
+    for (HttpMethod httpMethod : HttpMethod.values())
+    {
+      for (RequestParameters requestParameters : parameters)
+      {
+        assertSameRoute(httpMethod, "/orders", "text/html", requestParameters);
+      }
+    }
+
+    RequestPath requestPath = new RequestPath("/orders");
+    RequestedMediaType requestedMediaType = new RequestedMediaType("text/html", requestPath, null);
+    assertEquals("saveOrder", routingTable.find(requestPath, getRequestParameters("action", "save"), HttpMethod.POST, requestedMediaType).routeNode.method.getName());
+    assertEquals("deleteOrder", routingTable.find(requestPath, getRequestParameters("action", "delete"), HttpMethod.POST, requestedMediaType).routeNode.method.getName());
+    assertNull(routingTable.find(requestPath, getRequestParameters("action", "SAVE"), HttpMethod.POST, requestedMediaType));
+    assertEquals("listOrders", routingTable.find(requestPath, getRequestParameters(), HttpMethod.GET, requestedMediaType).routeNode.method.getName());
+  }
+
+  @Test
+  public void testSnapshots()
+  {
+    RoutingSnapshot snapshot = routingTable.getSnapshot();
+    routingTable.shutdown();
+    assertNull(find(HttpMethod.GET, "/api/orders/summary"));
+
+    RequestPath requestPath = new RequestPath("/api/orders/summary");
+    assertEquals("getOrdersSummary", snapshot.find(requestPath, getRequestParameters(), HttpMethod.GET, new RequestedMediaType("text/html", requestPath, null)).routeNode.method.getName());
+
+    routingTable.buildIfNecessary();
+    assertTrue(routingTable.getSnapshot().version > snapshot.version);
+    assertEquals("getOrdersSummary", find(HttpMethod.GET, "/api/orders/summary").routeNode.method.getName());
+  }
+
+  @Test
+  public void testCaseInsensitive()
+  {
+    RoutesConfiguration routesConfiguration = new RoutesConfiguration();
+    routesConfiguration.caseInsensitive = true;
+    routingTable = new RoutingTable(routesConfiguration);
+    routingTable.add(FindRoutes.class).build();
+
+    assertEquals("getOrdersSummary", find(HttpMethod.GET, "/API/Orders/Summary").routeNode.method.getName());
+    for (String path : PATHS)
+    {
+      assertSameRoute(HttpMethod.GET, path, "text/html");
+    }
+    assertEquals("saveOrder", routingTable.find(new RequestPath("/orders"), getRequestParameters("action", "SAVE"), HttpMethod.POST, new RequestedMediaType("text/html", new RequestPath("/orders"), null)).routeNode.method.getName());
+  }
+
+  @Test
+  public void testIncrementalAddAndRemove()
+  {
+    RoutingSnapshot snapshot = routingTable.getSnapshot();
+    routingTable.add(PluginRoutes.class);
+    assertTrue(routingTable.built);
+    assertTrue(routingTable.getSnapshot().version > snapshot.version);
+    assertEquals("getPluginStatus", find(HttpMethod.GET, "/plugin/status").routeNode.method.getName());
+    assertEquals("getPluginOrder", find(HttpMethod.GET, "/api/orders/plugin").routeNode.method.getName());
+    assertEquals("getOrdersSummary", find(HttpMethod.GET, "/api/orders/summary").routeNode.method.getName());
+
+    RequestPath requestPath = new RequestPath("/plugin/status");
+    assertNull(snapshot.find(requestPath, getRequestParameters(), HttpMethod.GET, new RequestedMediaType("text/html", requestPath, null)));
+
+    RoutingTable fullBuild = new RoutingTable(new RoutesConfiguration());
+    fullBuild.add(FindRoutes.class, PluginRoutes.class).build();
+    assertEquals(fullBuild.getRouteNodes().size(), routingTable.getRouteNodes().size());
+    for (int i = 0; i < fullBuild.getRouteNodes().size(); i++)
+    {
+      assertEquals(fullBuild.getRouteNodes().get(i).method, routingTable.getRouteNodes().get(i).method);
+    }
+    for (String path : PATHS)
+    {
+      assertSameRoute(HttpMethod.GET, path, "text/html");
+    }
+
+    routingTable.remove(PluginRoutes.class);
+    assertNull(find(HttpMethod.GET, "/plugin/status"));
+    assertEquals("getOrderByName", find(HttpMethod.GET, "/api/orders/plugin").routeNode.method.getName());
+    assertEquals(snapshot.routeNodes, routingTable.getRouteNodes());
+  }
+
+  @Test
+  public void testIncrementalAddFailure()
+  {
+    RoutingSnapshot snapshot = routingTable.getSnapshot();
+    try
+    {
+      routingTable.add(PluginRoutes.class, NoRoutes.class);
+      fail();
+    }
+    catch (RoutesException e)
+    {}
+
+    assertSame(snapshot, routingTable.getSnapshot());
+    assertNull(find(HttpMethod.GET, "/plugin/status"));
+
+    routingTable.add(PluginRoutes.class);
+    assertEquals("getPluginStatus", find(HttpMethod.GET, "/plugin/status").routeNode.method.getName());
+  }
+
+  @Test
+  public void testReorderByHits()
+  {
+    for (int i = 0; i < 10; i++)
+    {
+      assertEquals("getOrderItems", find(HttpMethod.GET, "/api/orders/12/items").routeNode.method.getName());
+    }
+    routingTable.reorderRoutes();
+
+    RoutingSnapshot snapshot = routingTable.getSnapshot();
+    assertEquals("getOrderItems", snapshot.searchOrder.get(0).method.getName());
+    assertEquals(routingTable.getRouteNodes(), snapshot.routeNodes);
+    Map<String, Long> routeHits = routingTable.getRouteHits();
+    assertEquals(Long.valueOf(10), routeHits.get(FindRoutes.class.getName() + ".getOrderItems(int) /api/orders/{}/items"));
+
+    for (HttpMethod httpMethod : HttpMethod.values())
+    {
+      for (String path : PATHS)
+      {
+        assertSameRoute(httpMethod, path, "text/html");
+        assertSameRoute(httpMethod, path, "application/pdf");
+      }
+    }
+
+    assertNull(find(HttpMethod.GET, "/unknown/path"));
+    RoutingSnapshot previousSnapshot = routingTable.getSnapshot();
+    routingTable.reorderRoutes();
+    assertSame(previousSnapshot.shadowedRouteNodes, routingTable.getSnapshot().shadowedRouteNodes);
+    assertEquals(previousSnapshot.generation, routingTable.getSnapshot().generation);
+    long negativeCacheHits = routingTable.getStatistics().getNegativeCacheHitCount();
+    assertNull(find(HttpMethod.GET, "/unknown/path"));
+    assertEquals(negativeCacheHits + 1, routingTable.getStatistics().getNegativeCacheHitCount());
+
+    RoutingTable reloadedTable = new RoutingTable(new RoutesConfiguration());
+    reloadedTable.loadRouteHits(routeHits);
+    reloadedTable.add(FindRoutes.class).build();
+    assertEquals("getOrderItems", reloadedTable.getSnapshot().searchOrder.get(0).method.getName());
+    assertEquals(routeHits.get(FindRoutes.class.getName() + ".getOrderItems(int) /api/orders/{}/items"), reloadedTable.getRouteHits().get(FindRoutes.class.getName() + ".getOrderItems(int) /api/orders/{}/items"));
+  }
+
+  @Test
+  public void testNegativeLookupCache()
+  {
+    assertNull(find(HttpMethod.GET, "/plugin/status"));
+    assertNull(find(HttpMethod.GET, "/plugin/status"));
+
+    RequestPath requestPath = new RequestPath("/orders");
+    RequestedMediaType requestedMediaType = new RequestedMediaType("text/html", requestPath, null);
+    assertNull(routingTable.find(requestPath, getRequestParameters("action", "other"), HttpMethod.POST, requestedMediaType));
+    assertEquals("saveOrder", routingTable.find(requestPath, getRequestParameters("action", "save"), HttpMethod.POST, requestedMediaType).routeNode.method.getName());
+
+    requestPath = new RequestPath("/report");
+    assertNull(routingTable.find(requestPath, getRequestParameters(), HttpMethod.GET, new RequestedMediaType("text/html", requestPath, null)));
+    assertEquals("getReportPdf", routingTable.find(requestPath, getRequestParameters(), HttpMethod.GET, new RequestedMediaType("application/pdf", requestPath, null)).routeNode.method.getName());
+
+    routingTable.add(PluginRoutes.class);
+    assertEquals("getPluginStatus", find(HttpMethod.GET, "/plugin/status").routeNode.method.getName());
+
+    NegativeLookupCache negativeLookupCache = new NegativeLookupCache(100);
+    for (int i = 0; i < 1000; i++)
+    {
+      negativeLookupCache.add(new RequestPath("/miss/" + i));
+      assertTrue(negativeLookupCache.contains(new RequestPath("/miss/" + i)));
+    }
+    assertFalse(negativeLookupCache.contains(new RequestPath("/hit")));
+    int cached = 0;
+    for (int i = 0; i < 1000; i++)
+    {
+      cached += negativeLookupCache.contains(new RequestPath("/miss/" + i)) ? 1 : 0;
+    }
+    assertTrue(cached <= 128);
+  }
+
+  @Test
+  public void testCachedMatchedRouteSharedAcrossThreads() throws InterruptedException
+  {
+    final RoutesCache routesCache = new TinyLfuRoutesCache(16, false);
+    final RequestPath requestPath = new RequestPath("/index.html");
+    final RequestedMediaType requestedMediaType = new RequestedMediaType("text/html", requestPath, null);
+    routesCache.put(find(HttpMethod.GET, "/index.html"), HttpMethod.GET, requestedMediaType, requestPath, null);
+
+    final AtomicInteger errors = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++)
+    {
+      Thread thread = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          for (int i = 0; i < 2000; i++)
+          {
+            MatchedRoute other = find(HttpMethod.GET, "/other" + i + ".txt");
+            MatchedRoute cached = (MatchedRoute)routesCache.get(HttpMethod.GET, requestedMediaType, requestPath, null);
+            if (!"getFile".equals(cached.routeNode.method.getName()) || !"index".equals(cached.getPathArgument(0)) || !"html".equals(cached.getPathArgument(1))
+                || !("other" + i).equals(other.getPathArgument(0)))
+            {
+              errors.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (Thread thread : threads)
+    {
+      thread.join();
+    }
+    assertEquals(0, errors.get());
+  }
+
+  @Test
+  public void testCacheGenerations()
+  {
+    RoutesConfiguration routesConfiguration = new RoutesConfiguration();
+    TinyLfuRoutesCache routesCache = new TinyLfuRoutesCache(16, true);
+    routesConfiguration.routesCache = routesCache;
+    routingTable = new RoutingTable(routesConfiguration);
+    routingTable.add(FindRoutes.class).build();
+
+    long generation = routingTable.getSnapshot().generation;
+    MatchedRoute matchedRoute = find(HttpMethod.GET, "/api/orders/12");
+    assertEquals(generation, matchedRoute.generation);
+
+    RequestPath requestPath = new RequestPath("/api/orders/12");
+    RequestedMediaType requestedMediaType = new RequestedMediaType("text/html", requestPath, null);
+    routesCache.put(matchedRoute, HttpMethod.GET, requestedMediaType, requestPath, getRequestParameters());
+    assertSame(matchedRoute, routesCache.get(HttpMethod.GET, requestedMediaType, requestPath, getRequestParameters()));
+
+    routingTable.reorderRoutes();
+    assertEquals(generation, routingTable.getSnapshot().generation);
+    assertSame(matchedRoute, routesCache.get(HttpMethod.GET, requestedMediaType, requestPath, getRequestParameters()));
+
+    routingTable.add(PluginRoutes.class);
+    assertTrue(routingTable.getSnapshot().generation > generation);
+    assertNull(routesCache.get(HttpMethod.GET, requestedMediaType, requestPath, getRequestParameters()));
+
+    generation = routingTable.getSnapshot().generation;
+    routingTable.shutdown();
+    assertTrue(routingTable.getSnapshot().generation > generation);
+  }
+
+  MatchedRoute find(HttpMethod httpMethod, String path)
+  {
+    RequestPath requestPath = new RequestPath(path);
+    return routingTable.find(requestPath, getRequestParameters(), httpMethod, new RequestedMediaType("text/html", requestPath, null));
+  }
+
+  void assertSameRoute(HttpMethod httpMethod, String path, String acceptType)
+  {
+    assertSameRoute(httpMethod, path, acceptType, getRequestParameters());
+  }
+
+  void assertSameRoute(HttpMethod httpMethod, String path, String acceptType, RequestParameters parameters)
+  {
+    RequestPath requestPath = new RequestPath(path);
+    RequestedMediaType requestedMediaType = new RequestedMediaType(acceptType, requestPath, parameters);
+
+    RouteNode expected = null;
+    for (RouteNode routeNode : routingTable.getRouteNodes())
+    {
+      if (routeNode.criteria.matches(httpMethod, requestedMediaType, requestPath, parameters))
+      {
+        expected = routeNode;
+        break;
+      }
+    }
+
+    MatchedRoute matchedRoute = routingTable.find(requestPath, parameters, httpMethod, requestedMediaType);
+    assertSame(httpMethod + " " + path + " " + parameters, expected, matchedRoute == null ? null : matchedRoute.routeNode);
+  }
+
+  public static class FindRoutes
+  {
+    @Route("/")
+    public void getIndex()
+    {}
+
+    @Route("/api/orders/summary")
+    public void getOrdersSummary()
+    {}
+
+    @Route("/api/orders/{}")
+    public void getOrder(int id)
+    {}
+
+    @Route("/api/orders/{[a-z]+}")
+    public void getOrderByName()
+    {}
+
+    @Route("/api/orders/{}/items")
+    public void getOrderItems(int id)
+    {}
+
+    @Route(value = "/api/orders", respondsToMethods = {HttpMethod.POST, HttpMethod.PUT})
+    public void postOrder()
+    {}
+
+    @Route(value = "/orders?action=save", respondsToMethods = HttpMethod.POST)
+    public void saveOrder()
+    {}
+
+    @Route(value = "/orders?action=delete", respondsToMethods = HttpMethod.POST)
+    public void deleteOrder()
+    {}
+
+    @Route(value = "/orders?action=list", defaultParameters = "action=list")
+    public void listOrders()
+    {}
+
+    @Route("/api/{v\\d+}/status")
+    public void getStatus()
+    {}
+
+    @Route("/files/**/raw/{}")
+    public void getRaw(int id)
+    {}
+
+    @Route("/files/**")
+    public void getFiles()
+    {}
+
+    @Route("/static/**/*")
+    public void getStatic()
+    {}
+
+    @Route(value = "/report", respondsToMediaRequests = MediaType.PDF)
+    public void getReportPdf()
+    {}
+
+    @Route(value = "/report", respondsToMediaRequests = MediaType.JSON)
+    public void getReportJson()
+    {}
+
+    @Route("/{(.*)\\.(.*)}")
+    public void getFile(String name, String extension)
+    {}
+  }
+
+  public static class PluginRoutes
+  {
+    @Route("/plugin/status")
+    public void getPluginStatus()
+    {}
+
+    @Route("/api/orders/plugin")
+    public void getPluginOrder()
+    {}
+  }
+
+  @Routes(routeUnannotatedPublicMethods = false)
+  public static class NoRoutes
+  {
+    public void notARoute()
+    {}
+  }
+}
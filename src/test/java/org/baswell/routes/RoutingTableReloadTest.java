@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.baswell.routes.RoutingTableFindTest.*;
+import static org.baswell.routes.TestMethods.*;
+import static org.junit.Assert.*;
+
+public class RoutingTableReloadTest
+{
+  RoutingTable routingTable;
+
+  @Before
+  public void setupRoutingTable()
+  {
+    routingTable = new RoutingTable(new RoutesConfiguration());
+    routingTable.add(FindRoutes.class).build();
+  }
+
+  @Test
+  public void testReload()
+  {
+    routingTable.add(PluginRoutes.class);
+    List<RouteNode> routeNodes = routingTable.getRouteNodes();
+    RoutingSnapshot snapshot = routingTable.getSnapshot();
+
+    routingTable.reload(Arrays.<Object>asList(FindRoutes.class));
+    assertTrue(routingTable.getSnapshot().version > snapshot.version);
+
+    List<RouteNode> reloadedRouteNodes = routingTable.getRouteNodes();
+    assertEquals(routeNodes.size(), reloadedRouteNodes.size());
+    for (int i = 0; i < routeNodes.size(); i++)
+    {
+      RouteNode routeNode = routeNodes.get(i);
+      RouteNode reloadedRouteNode = reloadedRouteNodes.get(i);
+      assertEquals(routeNode.method, reloadedRouteNode.method);
+      assertEquals(routeNode.method.getDeclaringClass() == PluginRoutes.class, routeNode == reloadedRouteNode);
+    }
+    assertEquals("getPluginOrder", find(HttpMethod.GET, "/api/orders/plugin").routeNode.method.getName());
+  }
+
+  MatchedRoute find(HttpMethod httpMethod, String path)
+  {
+    RequestPath requestPath = new RequestPath(path);
+    return routingTable.find(requestPath, getRequestParameters(), httpMethod, new RequestedMediaType("text/html", requestPath, null));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TinyLfuRoutesCacheTest
+{
+  static final RequestedMediaType MEDIA_TYPE = new RequestedMediaType("text/html");
+
+  @Test
+  public void testGetAndPut()
+  {
+    TinyLfuRoutesCache cache = new TinyLfuRoutesCache(10, false);
+    assertNull(get(cache, "/a"));
+    put(cache, "/a", "a");
+    assertEquals("a", get(cache, "/a"));
+    assertNull(cache.get(HttpMethod.POST, MEDIA_TYPE, new RequestPath("/a"), null));
+
+    put(cache, "/a", "b");
+    assertEquals("b", get(cache, "/a"));
+    cache.cleanUp();
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testStaleGenerationsIgnored()
+  {
+    TinyLfuRoutesCache cache = new TinyLfuRoutesCache(10, false);
+    cache.routingTableBuilt(1, Collections.<String>emptyList());
+    put(cache, "/a", "a");
+    assertEquals("a", get(cache, "/a"));
+
+    cache.routingTableBuilt(2, Collections.<String>emptyList());
+    assertNull(get(cache, "/a"));
+    cache.cleanUp();
+    assertEquals(0, cache.size());
+
+    put(cache, "/a", "b");
+    assertEquals("b", get(cache, "/a"));
+  }
+
+  @Test
+  public void testFrequentRoutesSurviveScan()
+  {
+    TinyLfuRoutesCache cache = new TinyLfuRoutesCache(100, false);
+    for (int i = 0; i < 50; i++)
+    {
+      put(cache, "/hot/" + i, "hot" + i);
+    }
+
+    for (int round = 0; round < 20; round++)
+    {
+      for (int i = 0; i < 50; i++)
+      {
+        assertEquals("hot" + i, get(cache, "/hot/" + i));
+      }
+    }
+    cache.cleanUp();
+
+    for (int i = 0; i < 5000; i++)
+    {
+      put(cache, "/scan/" + i, "scan" + i);
+      get(cache, "/hot/" + (i % 50));
+    }
+    cache.cleanUp();
+
+    assertTrue(cache.size() <= 100);
+    for (int i = 0; i < 50; i++)
+    {
+      assertEquals("hot" + i, get(cache, "/hot/" + i));
+    }
+  }
+
+  @Test
+  public void testConcurrentAccess() throws InterruptedException
+  {
+    final TinyLfuRoutesCache cache = new TinyLfuRoutesCache(64, false);
+    final AtomicInteger errors = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++)
+    {
+      final int seed = t;
+      Thread thread = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          for (int i = 0; i < 20000; i++)
+          {
+            String path = "/path/" + ((i * 31 + seed) % 200);
+            Object value = get(cache, path);
+            if (value == null)
+            {
+              put(cache, path, path);
+            }
+            else if (!value.equals(path))
+            {
+              errors.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (Thread thread : threads)
+    {
+      thread.join();
+    }
+    cache.cleanUp();
+
+    assertEquals(0, errors.get());
+    assertTrue(cache.size() <= 64);
+  }
+
+  static Object get(TinyLfuRoutesCache cache, String path)
+  {
+    return cache.get(HttpMethod.GET, MEDIA_TYPE, new RequestPath(path), null);
+  }
+
+  static void put(TinyLfuRoutesCache cache, String path, Object routeNode)
+  {
+    cache.put(routeNode, HttpMethod.GET, MEDIA_TYPE, new RequestPath(path), null);
+  }
+}
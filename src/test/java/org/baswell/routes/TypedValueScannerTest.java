@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Corey Baswell
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.baswell.routes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.baswell.routes.RoutesMethods.*;
+import static org.junit.Assert.*;
+
+public class TypedValueScannerTest
+{
+  static final String[] VALUES = {"", "-", "0", "-0", "7", "-7", "12", "127", "128", "-128", "-129", "999", "1000", "32767", "32768", "-32769",
+                                  "2147483647", "2147483648", "-2147483648", "-2147483649", "12345678901", "9223372036854775807",
+                                  "9223372036854775808", "-9223372036854775808", "-9223372036854775809", "99999999999999999999",
+                                  "+1", "1-", "--1", "1a", "a1", " 1", "1 ", "\u0661", "1.", ".1", "1.5", "-1.5", "12345678.5", "123456789.5",
+                                  "1.12345678901234567890123", "1.123456789012345678901234", "1..2", "1.2.3", "-.5",
+                                  "true", "TRUE", "tRuE", "false", "FALSE", "fals", "truee", "yes", "fal\u017Fe", "tru\u0435"};
+
+  @Test
+  public void testScannersMatchPatterns()
+  {
+    for (TypedValueScanner scanner : TypedValueScanner.values())
+    {
+      Pattern pattern = Pattern.compile(scanner.pattern, Pattern.DOTALL);
+      assertSame(scanner, TypedValueScanner.forPattern(pattern));
+      for (String value : getValues())
+      {
+        assertEquals(scanner + " " + value, pattern.matcher(value).matches(), scanner.scan(value, null, null, 0));
+      }
+    }
+  }
+
+  @Test
+  public void testParsedValues()
+  {
+    long[] parsedValues = new long[1];
+    boolean[] parsed = new boolean[1];
+
+    assertScanned(TypedValueScanner.BYTE, "-128", (byte)-128, parsedValues, parsed);
+    assertScanned(TypedValueScanner.BYTE, "128", null, parsedValues, parsed);
+    assertScanned(TypedValueScanner.SHORT, "32767", (short)32767, parsedValues, parsed);
+    assertScanned(TypedValueScanner.INTEGER, "-2147483648", Integer.MIN_VALUE, parsedValues, parsed);
+    assertScanned(TypedValueScanner.INTEGER, "2147483648", null, parsedValues, parsed);
+    assertScanned(TypedValueScanner.LONG, "-9223372036854775808", Long.MIN_VALUE, parsedValues, parsed);
+    assertScanned(TypedValueScanner.LONG, "9223372036854775807", Long.MAX_VALUE, parsedValues, parsed);
+    assertScanned(TypedValueScanner.LONG, "9223372036854775808", null, parsedValues, parsed);
+    assertScanned(TypedValueScanner.FLOAT, "-1.5", -1.5f, parsedValues, parsed);
+    assertScanned(TypedValueScanner.DOUBLE, "0.1", 0.1, parsedValues, parsed);
+    assertScanned(TypedValueScanner.BOOLEAN, "TRUE", true, parsedValues, parsed);
+    assertScanned(TypedValueScanner.BOOLEAN, "false", false, parsedValues, parsed);
+  }
+
+  @Test
+  public void testFractionDigits()
+  {
+    assertTrue(TypedValueScanner.FLOAT.scan("1." + repeat("1", 23), null, null, 0));
+    assertFalse(TypedValueScanner.FLOAT.scan("1." + repeat("1", 24), null, null, 0));
+    assertTrue(TypedValueScanner.DOUBLE.scan("1." + repeat("1", 46), null, null, 0));
+    assertFalse(TypedValueScanner.DOUBLE.scan("1." + repeat("1", 47), null, null, 0));
+    assertTrue(TypedValueScanner.DOUBLE.scan(repeat("9", 15) + ".5", null, null, 0));
+    assertFalse(TypedValueScanner.DOUBLE.scan(repeat("9", 16) + ".5", null, null, 0));
+  }
+
+  @Test
+  public void testForPattern()
+  {
+    assertNull(TypedValueScanner.forPattern(Pattern.compile(STRING_PATTERN)));
+    assertNull(TypedValueScanner.forPattern(Pattern.compile(INTEGER_PATTERN, Pattern.CASE_INSENSITIVE)));
+    assertSame(TypedValueScanner.INTEGER, TypedValueScanner.forPattern(Pattern.compile(INTEGER_PATTERN)));
+    assertNull(TypedValueScanner.forPattern(Pattern.compile("\\d+")));
+  }
+
+  void assertScanned(TypedValueScanner scanner, String value, Object expected, long[] parsedValues, boolean[] parsed)
+  {
+    assertTrue(scanner.scan(value, parsedValues, parsed, 0));
+    if (expected == null)
+    {
+      assertFalse(parsed[0]);
+    }
+    else
+    {
+      assertTrue(parsed[0]);
+      assertEquals(expected, scanner.toObject(parsedValues[0]));
+    }
+  }
+
+  List<String> getValues()
+  {
+    List<String> values = new ArrayList<String>();
+    for (String value : VALUES)
+    {
+      values.add(value);
+    }
+
+    /*
+     * The typed patterns backtrack exponentially on long values that do not match so the pattern comparison sticks to short values.
+     */
+    for (int digits = 1; digits <= 20; digits++)
+    {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < digits; i++)
+      {
+        builder.append((char)('0' + (i % 10)));
+      }
+      values.add(builder.toString());
+      values.add("-" + builder);
+      values.add(builder + ".5");
+      values.add("1." + builder);
+      values.add(builder + "." + builder);
+    }
+    return values;
+  }
+}
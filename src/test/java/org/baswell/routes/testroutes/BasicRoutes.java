@@ -63,6 +63,13 @@ public class BasicRoutes extends BaseRoutes
     assertEquals(number, path.getInteger(0));
   }
   
+  @Route(value="/files/**/raw/{}", tags="not_authenticated")
+  public void getRawFile(int id, RequestPath path)
+  {
+    methodsCalled.add("getRawFile");
+    assertEquals(id, path.getInteger(path.size() - 1));
+  }
+
   @Route("/redirect")
   public void redirectTest()
   {
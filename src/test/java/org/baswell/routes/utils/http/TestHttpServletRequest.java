@@ -32,6 +32,8 @@ public class TestHttpServletRequest implements HttpServletRequest
   public Map<String, Object> attributes = new HashMap<String, Object>();
   
   public Map<String, String[]> parameters = new HashMap<String, String[]>();
+
+  public Map<String, String> headers = new HashMap<String, String>();
   
   public String method = "GET";
   
@@ -278,7 +280,7 @@ public class TestHttpServletRequest implements HttpServletRequest
   @Override
   public String getHeader(String name)
   {
-    throw new RuntimeException("Not implemented.");
+    return headers.get(name);
   }
 
   @Override